@@ -0,0 +1,67 @@
+package fadaf.bench;
+
+import fadaf.ApproximateFADAF;
+import fadaf.FADAF;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Counting throughput of ApproximateFADAF against exact FADAF on the same key stream. The sketch keeps the
+ * same footprint at every key space, while FADAF grows a node per distinct key. Accuracy is measured
+ * separately by SketchAccuracy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ApproximateFADAFBenchmark {
+
+    private static final int N_DRAWS = 1 << 20;
+
+    @Param({"100000", "10000000"})
+    int keySpace;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    KeyDistribution distribution;
+
+    @Param({"0.0001"})
+    double epsilon;
+
+    FADAF<Integer, Integer> exact;
+    ApproximateFADAF<Integer> approximate;
+    Integer[] draws;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.exact = new FADAF<>(10);
+        this.approximate = new ApproximateFADAF<>(this.epsilon, 0.01, 100);
+        this.draws = this.distribution.boxedKeys(N_DRAWS, this.keySpace, 42);
+        for (Integer key : this.draws) {
+            this.exact.insert(key, key, 1);
+            this.approximate.insert(key, 1);
+        }
+        this.next = 0;
+    }
+
+    private int nextIndex() { return this.next = (this.next + 1) & (N_DRAWS - 1); }
+
+    @Benchmark
+    public boolean exactInsert() {
+        Integer key = this.draws[nextIndex()];
+        return this.exact.insert(key, key, 1);
+    }
+
+    @Benchmark
+    public long approximateInsert() { return this.approximate.insert(this.draws[nextIndex()], 1); }
+
+    @Benchmark
+    public int exactLookup() { return this.exact.lookup(this.draws[nextIndex()]); }
+
+    @Benchmark
+    public long approximateLookup() { return this.approximate.lookup(this.draws[nextIndex()]); }
+
+}
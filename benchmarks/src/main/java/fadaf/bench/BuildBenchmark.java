@@ -0,0 +1,65 @@
+package fadaf.bench;
+
+import fadaf.DAFTree;
+import fadaf.FADAF;
+import fadaf.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Time to build a structure from scratch, one single shot per iteration. Growing a HashTable from the
+ * minimum capacity measures the cost of every rehash on the way up; the presized table shows the baseline.
+ * SORTED is the worst case for a search tree, which only stays logarithmic if it rebalances on insert.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BuildBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SORTED"})
+    KeyDistribution distribution;
+
+    Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() { this.keys = this.distribution.boxedKeys(this.size, this.size, 42); }
+
+    @Benchmark
+    public HashTable<Integer, Integer> hashTableGrowing() {
+        HashTable<Integer, Integer> table = new HashTable<>(10);
+        for (Integer key : this.keys) { table.insert(key, key); }
+        return table;
+    }
+
+    @Benchmark
+    public HashTable<Integer, Integer> hashTablePresized() {
+        HashTable<Integer, Integer> table = new HashTable<>(Math.max(10, this.size * 2));
+        for (Integer key : this.keys) { table.insert(key, key); }
+        return table;
+    }
+
+    @Benchmark
+    public DAFTree<Integer, Integer> balancedTreeInsert() {
+        DAFTree<Integer, Integer> tree = new DAFTree<>(true);
+        for (Integer key : this.keys) { tree.insert(key, key, 1); }
+        return tree;
+    }
+
+    @Benchmark
+    public FADAF<Integer, Integer> fadafInsert() {
+        FADAF<Integer, Integer> fadaf = new FADAF<>(10);
+        for (Integer key : this.keys) { fadaf.insert(key, key, 1); }
+        return fadaf;
+    }
+
+    @Benchmark
+    public FADAF<Integer, Integer> fadafBulkLoad() { return FADAF.bulkLoad(this.keys, this.keys); }
+
+}
@@ -0,0 +1,42 @@
+package fadaf.bench;
+
+import fadaf.BoundedHashTable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Compares the hit rate of BoundedHashTable against a plain LRU cache of the same size, on zipfian traffic
+ * alone and with every fourth request replaced by a one-off scan key. Each miss loads the key into both caches.
+ * Usage: java -cp benchmarks.jar fadaf.bench.CacheHitRate [nRequests] [keySpace]
+ */
+public class CacheHitRate {
+
+    private static final int[] SIZES = {100, 1000, 10000};
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int keySpace = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int[] zipfian = KeyDistribution.ZIPFIAN.keys(n, keySpace, 42);
+
+        System.out.printf("%-12s %8s %10s %10s%n", "traffic", "size", "tinyLfu", "lru");
+        for (boolean scans : new boolean[]{false, true}) {
+            for (int size : SIZES) {
+                BoundedHashTable<Integer, Integer> tinyLfu = new BoundedHashTable<>(size);
+                LinkedHashMap<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(size * 2, 0.75f, true) {
+                    protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) { return size() > size; }
+                };
+
+                long lruHits = 0;
+                for (int i = 0; i < n; i++) {
+                    int key = scans && i % 4 == 0 ? keySpace + i : zipfian[i];
+                    if (tinyLfu.lookup(key) == null) { tinyLfu.insert(key, key); }
+                    if (lru.get(key) != null) { lruHits++; } else { lru.put(key, key); }
+                }
+                System.out.printf("%-12s %8d %9.2f%% %9.2f%%%n", scans ? "zipf+scan" : "zipf", size,
+                        100 * tinyLfu.stats().hitRate(), 100.0 * lruHits / n);
+            }
+        }
+    }
+
+}
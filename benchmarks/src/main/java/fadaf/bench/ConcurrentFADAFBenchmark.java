@@ -0,0 +1,84 @@
+package fadaf.bench;
+
+import fadaf.ConcurrentFADAF;
+import fadaf.FADAF;
+import fadaf.ShardedFADAF;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Shared-instance throughput of ConcurrentFADAF and ShardedFADAF against a FADAF behind one synchronized
+ * block. Reads are lookups plus an occasional range query; writes split between insert and remove. Run at
+ * several thread counts with -t, or through ThreadSweep for 1 to 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentFADAFBenchmark {
+
+    @Param({"1048576"})
+    int size;
+
+    @Param({"100", "95", "80", "50"})
+    int readPercent;
+
+    ConcurrentFADAF<Integer, Integer> concurrent;
+    ShardedFADAF<Integer, Integer> sharded;
+    FADAF<Integer, Integer> locked;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.concurrent = new ConcurrentFADAF<>(this.size);
+        this.sharded = new ShardedFADAF<>(this.size);
+        this.locked = new FADAF<>(this.size);
+        for (int i = 0; i < this.size; i += 2) {
+            this.concurrent.insert(i, i, 1);
+            this.sharded.insert(i, i, 1);
+            this.locked.insert(i, i, 1);
+        }
+    }
+
+    @Benchmark
+    public Object concurrentFADAF() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(this.size);
+        if (random.nextInt(100) < this.readPercent) {
+            if (random.nextInt(100) == 0) { return this.concurrent.getUniqueKeysInRange(key, key + 64); }
+            return this.concurrent.lookup(key);
+        }
+        if (random.nextBoolean()) { return this.concurrent.insert(key, key, 1); }
+        return this.concurrent.remove(key, 1);
+    }
+
+    @Benchmark
+    public Object shardedFADAF() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(this.size);
+        if (random.nextInt(100) < this.readPercent) {
+            if (random.nextInt(100) == 0) { return this.sharded.getUniqueKeysInRange(key, key + 64); }
+            return this.sharded.lookup(key);
+        }
+        if (random.nextBoolean()) { return this.sharded.insert(key, key, 1); }
+        return this.sharded.remove(key, 1);
+    }
+
+    @Benchmark
+    public Object synchronizedFADAF() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(this.size);
+        synchronized (this.locked) {
+            if (random.nextInt(100) < this.readPercent) {
+                if (random.nextInt(100) == 0) { return this.locked.getUniqueKeysInRange(key, key + 64); }
+                return this.locked.lookup(key);
+            }
+            if (random.nextBoolean()) { return this.locked.insert(key, key, 1); }
+            return this.locked.remove(key, 1);
+        }
+    }
+
+}
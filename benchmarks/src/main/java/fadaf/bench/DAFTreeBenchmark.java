@@ -0,0 +1,81 @@
+package fadaf.bench;
+
+import fadaf.DAFTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Steady-state operations on a balanced DAFTree holding every even key of the key space.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DAFTreeBenchmark {
+
+    private static final int N_DRAWS = 1 << 20;
+    private static final int RANGE_WIDTH = 100;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SORTED"})
+    KeyDistribution distribution;
+
+    DAFTree<Integer, Integer> tree;
+    Integer[] draws;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Integer[] keys = new Integer[this.size];
+        int[] counts = new int[this.size];
+        for (int i = 0; i < this.size; i++) {
+            keys[i] = 2 * i;
+            counts[i] = 1;
+        }
+        this.tree = new DAFTree<>(true);
+        this.tree.buildBalanced(keys, keys, counts, this.size);
+
+        this.draws = this.distribution.boxedKeys(N_DRAWS, 2 * this.size, 42);
+        this.next = 0;
+    }
+
+    private int nextIndex() { return this.next = (this.next + 1) & (N_DRAWS - 1); }
+
+    @Benchmark
+    public Object lookup() { return this.tree.lookup(this.draws[nextIndex()]); }
+
+    @Benchmark
+    public int rank() { return this.tree.rank(this.draws[nextIndex()]); }
+
+    // one insert and one remove of the same key, keeping the size steady
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public Object insertRemove() {
+        Integer key = this.draws[nextIndex()];
+        this.tree.insert(key, key, 1);
+        return this.tree.remove(key, 1);
+    }
+
+    @Benchmark
+    public void rangeIterator(Blackhole bh) {
+        int lower = this.draws[nextIndex()];
+        Iterator<Integer> iter = this.tree.rangeIterator(lower, true, lower + RANGE_WIDTH, false, false);
+        while (iter.hasNext()) { bh.consume(iter.next()); }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterate(Blackhole bh) {
+        Iterator<Integer> iter = this.tree.uniqueIterator();
+        while (iter.hasNext()) { bh.consume(iter.next()); }
+    }
+
+}
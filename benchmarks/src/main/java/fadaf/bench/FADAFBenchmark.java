@@ -0,0 +1,131 @@
+package fadaf.bench;
+
+import fadaf.FADAF;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Steady-state FADAF operations on a prebuilt instance. The instance holds every even key of the key space,
+ * so about half of the drawn keys hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FADAFBenchmark {
+
+    private static final int N_DRAWS = 1 << 20;
+    private static final int RANGE_WIDTH = 100;
+    private static final int BATCH = 1 << 10;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SORTED"})
+    KeyDistribution distribution;
+
+    FADAF<Integer, Integer> fadaf;
+    Integer[] draws;
+    int[] mix; // 0 insert, 1 remove, 2 to 19 lookup
+    int next;
+    int[] ones = new int[BATCH];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int keySpace = 2 * this.size;
+        Integer[] keys = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) { keys[i] = 2 * i; }
+        this.fadaf = FADAF.bulkLoad(keys, keys);
+
+        this.draws = this.distribution.boxedKeys(N_DRAWS, keySpace, 42);
+        this.mix = KeyDistribution.UNIFORM.keys(N_DRAWS, 20, 7);
+        this.next = 0;
+        Arrays.fill(this.ones, 1);
+    }
+
+    private int nextIndex() { return this.next = (this.next + 1) & (N_DRAWS - 1); }
+
+    @Benchmark
+    public int lookup() { return this.fadaf.lookup(this.draws[nextIndex()]); }
+
+    @Benchmark
+    public boolean update() {
+        Integer key = this.draws[nextIndex()];
+        return this.fadaf.update(key, key);
+    }
+
+    // one insert and one remove of the same key, keeping the size steady
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public boolean insertRemove() {
+        Integer key = this.draws[nextIndex()];
+        this.fadaf.insert(key, key, 1);
+        return this.fadaf.remove(key, 1);
+    }
+
+    // draws BATCH consecutive keys for the batched benchmarks
+    private Integer[] nextBatch() {
+        // masking with N_DRAWS - BATCH keeps the start a multiple of BATCH, so the batch never runs off the end
+        int from = (this.next = (this.next + BATCH) & (N_DRAWS - BATCH));
+        return Arrays.copyOfRange(this.draws, from, from + BATCH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int[] lookupBatch() { return this.fadaf.lookupBatch(nextBatch()); }
+
+    // the batched counterpart of insertRemove
+    @Benchmark
+    @OperationsPerInvocation(2 * BATCH)
+    public boolean[] insertRemoveBatch() {
+        Integer[] keys = nextBatch();
+        this.fadaf.insertBatch(keys, keys, this.ones);
+        return this.fadaf.removeBatch(keys, this.ones);
+    }
+
+    @Benchmark
+    public List<Integer> rangeQuery() {
+        int lower = this.draws[nextIndex()];
+        return this.fadaf.getUniqueKeysInRange(lower, lower + RANGE_WIDTH);
+    }
+
+    @Benchmark
+    public void rangeCursor(Blackhole bh) {
+        int lower = this.draws[nextIndex()];
+        Iterator<Integer> iter = this.fadaf.uniqueKeysInRange(lower, false, lower + RANGE_WIDTH, false, false);
+        while (iter.hasNext()) { bh.consume(iter.next()); }
+    }
+
+    @Benchmark
+    public int countInRange() {
+        int lower = this.draws[nextIndex()];
+        return this.fadaf.countInRange(lower, lower + RANGE_WIDTH);
+    }
+
+    // 90% lookups, 5% inserts, 5% removes
+    @Benchmark
+    public int mixed() {
+        int i = nextIndex();
+        Integer key = this.draws[i];
+        switch (this.mix[i]) {
+            case 0: return this.fadaf.insert(key, key, 1) ? 1 : 0;
+            case 1: return this.fadaf.remove(key, 1) ? 1 : 0;
+            default: return this.fadaf.lookup(key);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterateUnique(Blackhole bh) {
+        for (Integer key : this.fadaf.getAllKeys(false)) { bh.consume(key); }
+    }
+
+}
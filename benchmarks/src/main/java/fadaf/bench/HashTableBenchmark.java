@@ -0,0 +1,60 @@
+package fadaf.bench;
+
+import fadaf.HashTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Steady-state HashTable operations on a prebuilt table holding every even key of the key space.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HashTableBenchmark {
+
+    private static final int N_DRAWS = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int size;
+
+    @Param({"UNIFORM", "ZIPFIAN", "SORTED"})
+    KeyDistribution distribution;
+
+    HashTable<Integer, Integer> table;
+    Integer[] draws;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.table = new HashTable<>(Math.max(10, this.size * 2));
+        for (int i = 0; i < this.size; i++) { this.table.insert(2 * i, i); }
+
+        this.draws = this.distribution.boxedKeys(N_DRAWS, 2 * this.size, 42);
+        this.next = 0;
+    }
+
+    private int nextIndex() { return this.next = (this.next + 1) & (N_DRAWS - 1); }
+
+    @Benchmark
+    public Integer lookup() { return this.table.lookup(this.draws[nextIndex()]); }
+
+    @Benchmark
+    public boolean update() {
+        Integer key = this.draws[nextIndex()];
+        return this.table.update(key, key);
+    }
+
+    // one insert and one delete of the same key, keeping the size steady
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public boolean insertDelete() {
+        Integer key = this.draws[nextIndex()];
+        this.table.insert(key, key);
+        return this.table.delete(key);
+    }
+
+}
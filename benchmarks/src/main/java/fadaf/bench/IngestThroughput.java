@@ -0,0 +1,65 @@
+package fadaf.bench;
+
+import fadaf.FADAF;
+import fadaf.TokenIngest;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+
+/*
+ * Writes a text file of zipfian words, then counts its tokens by reading it line by line into FADAF.insert and
+ * by TokenIngest at 1 thread and at one per core, printing the throughput of each.
+ * Usage: java -cp benchmarks.jar fadaf.bench.IngestThroughput [nWords] [vocabulary]
+ */
+public class IngestThroughput {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000_000;
+        int vocabulary = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int[] words = KeyDistribution.ZIPFIAN.keys(n, vocabulary, 42);
+
+        Path path = Files.createTempFile("fadaf-ingest", ".txt");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < n; i++) {
+                    writer.write("w" + words[i]);
+                    writer.write(i % 12 == 11 ? '\n' : ' ');
+                }
+            }
+            double megabytes = Files.size(path) / 1e6;
+            System.out.printf("%d words, %.1f MB%n", n, megabytes);
+
+            long start = System.nanoTime();
+            FADAF<String, String> naive = new FADAF<>(vocabulary);
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                for (String line; (line = reader.readLine()) != null; ) {
+                    for (String word : line.split("\\s+")) {
+                        if (!word.isEmpty()) { naive.insert(word, word, 1); }
+                    }
+                }
+            }
+            report("readLine+insert", start, megabytes, naive);
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int nThreads : cores > 1 ? new int[]{1, cores} : new int[]{1}) {
+                start = System.nanoTime();
+                FADAF<String, String> ingested = TokenIngest.countTokens(path, Function.identity(), nThreads);
+                report("TokenIngest x" + nThreads, start, megabytes, ingested);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void report(String name, long start, double megabytes, FADAF<String, String> fadaf) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-18s %8.2f s %8.1f MB/s  %d tokens, %d unique%n", name, seconds, megabytes / seconds,
+                fadaf.size(), fadaf.nUniqueKeys());
+    }
+
+}
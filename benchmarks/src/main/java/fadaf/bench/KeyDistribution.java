@@ -0,0 +1,65 @@
+package fadaf.bench;
+
+import java.util.Random;
+
+/*
+ * Key sequences used by the benchmarks. Keys are drawn from [0, keySpace).
+ */
+public enum KeyDistribution {
+
+    UNIFORM {
+        @Override
+        public int[] keys(int n, int keySpace, long seed) {
+            Random random = new Random(seed);
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) { keys[i] = random.nextInt(keySpace); }
+            return keys;
+        }
+    },
+
+    // YCSB-style scrambled zipfian with theta 0.99: a few keys take most of the traffic, spread over the key space
+    ZIPFIAN {
+        @Override
+        public int[] keys(int n, int keySpace, long seed) {
+            double theta = 0.99;
+            double zetaN = 0;
+            for (int i = 1; i <= keySpace; i++) { zetaN += 1 / Math.pow(i, theta); }
+            double zeta2 = 1 + 1 / Math.pow(2, theta);
+            double alpha = 1 / (1 - theta);
+            double eta = (1 - Math.pow(2.0 / keySpace, 1 - theta)) / (1 - zeta2 / zetaN);
+
+            Random random = new Random(seed);
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) {
+                double u = random.nextDouble();
+                double uz = u * zetaN;
+                long rank;
+                if (uz < 1) { rank = 0; }
+                else if (uz < zeta2) { rank = 1; }
+                else { rank = (long) (keySpace * Math.pow(eta * u - eta + 1, alpha)); }
+                keys[i] = (int) Math.floorMod(Math.min(rank, keySpace - 1) * 0x9E3779B97F4A7C15L, (long) keySpace);
+            }
+            return keys;
+        }
+    },
+
+    // ascending keys, wrapping around the key space
+    SORTED {
+        @Override
+        public int[] keys(int n, int keySpace, long seed) {
+            int[] keys = new int[n];
+            for (int i = 0; i < n; i++) { keys[i] = i % keySpace; }
+            return keys;
+        }
+    };
+
+    public abstract int[] keys(int n, int keySpace, long seed);
+
+    public Integer[] boxedKeys(int n, int keySpace, long seed) {
+        int[] keys = this.keys(n, keySpace, seed);
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) { boxed[i] = keys[i]; }
+        return boxed;
+    }
+
+}
@@ -0,0 +1,83 @@
+package fadaf.bench;
+
+import fadaf.Codec;
+import fadaf.FADAFClient;
+import fadaf.FADAFServer;
+import fadaf.ShardedFADAF;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Loopback load test for FADAFServer. Starts a server over a ShardedFADAF holding every even key, then has
+ * each client thread keep depth batches of batchSize requests in flight, 90% lookups and 10% inserts or
+ * removes over uniform keys. Prints requests per second once a second, then the average over the run.
+ * Usage: java -cp benchmarks.jar fadaf.bench.ServerLoadTest [clients] [batchSize] [depth] [seconds] [loops]
+ */
+public class ServerLoadTest {
+
+    private static final int KEY_SPACE = 1 << 20;
+
+    public static void main(String[] args) throws Exception {
+        int nClients = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int nLoops = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        ShardedFADAF<Integer, Integer> fadaf = new ShardedFADAF<>(KEY_SPACE);
+        for (int key = 0; key < KEY_SPACE; key += 2) { fadaf.insert(key, key, 1); }
+
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        try (FADAFServer<Integer, Integer> server = new FADAFServer<>(fadaf, Codec.INTEGER, Codec.INTEGER, any,
+                                                                       nLoops)) {
+            InetSocketAddress address = server.address();
+            LongAdder completed = new LongAdder();
+            long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+            Thread[] clients = new Thread[nClients];
+            for (int c = 0; c < nClients; c++) {
+                clients[c] = new Thread(() -> {
+                    try (FADAFClient<Integer, Integer> client = new FADAFClient<>(address, Codec.INTEGER,
+                                                                                   Codec.INTEGER)) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            while (client.inFlight() < depth) {
+                                FADAFClient.Batch<Integer, Integer> batch = client.batch();
+                                for (int i = 0; i < batchSize; i++) {
+                                    int key = random.nextInt(KEY_SPACE);
+                                    int roll = random.nextInt(20);
+                                    if (roll == 0) { batch.insert(key, key, 1); }
+                                    else if (roll == 1) { batch.remove(key, 1); }
+                                    else { batch.lookup(key); }
+                                }
+                                client.send(batch);
+                            }
+                            completed.add(client.receive().size());
+                        }
+                        while (client.inFlight() > 0) { completed.add(client.receive().size()); }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                });
+                clients[c].start();
+            }
+
+            long start = System.nanoTime(), last = 0;
+            for (int s = 1; s <= seconds; s++) {
+                Thread.sleep(1000);
+                long done = completed.sum();
+                System.out.printf("%3ds %,12d req/s%n", s, done - last);
+                last = done;
+            }
+            for (Thread client : clients) { client.join(); }
+
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.printf("clients=%d batch=%d depth=%d loops=%d: %,.0f req/s average%n",
+                    nClients, batchSize, depth, nLoops, completed.sum() / elapsed);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package fadaf.bench;
+
+import fadaf.ApproximateFADAF;
+
+import java.util.*;
+
+/*
+ * Measures how far ApproximateFADAF's counts drift from the exact ones, for several error bounds and key
+ * distributions. For each run it prints the sketch footprint, the mean and maximum overcount over every
+ * distinct key, the share of keys within the epsilon * N bound, and how many of the true top 10 keys the
+ * heavy-hitter cache reports.
+ * Usage: java -cp benchmarks.jar fadaf.bench.SketchAccuracy [nInserts] [keySpace]
+ */
+public class SketchAccuracy {
+
+    private static final double[] EPSILONS = {0.01, 0.001, 0.0001};
+    private static final double DELTA = 0.01;
+    private static final int TOP = 10;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int keySpace = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        System.out.printf("%-8s %8s %10s %12s %12s %10s %8s%n",
+                "dist", "epsilon", "sketchKB", "meanError", "maxError", "inBound", "top10");
+        for (KeyDistribution distribution : new KeyDistribution[]{KeyDistribution.UNIFORM, KeyDistribution.ZIPFIAN}) {
+            int[] keys = distribution.keys(n, keySpace, 42);
+            HashMap<Integer, Integer> exact = new HashMap<>();
+            for (int key : keys) { exact.merge(key, 1, Integer::sum); }
+            List<Integer> expectedTop = new ArrayList<>(exact.keySet());
+            expectedTop.sort((a, b) -> exact.get(b) - exact.get(a));
+            expectedTop = expectedTop.subList(0, Math.min(TOP, expectedTop.size()));
+
+            for (double epsilon : EPSILONS) {
+                ApproximateFADAF<Integer> approximate = new ApproximateFADAF<>(epsilon, DELTA, 10 * TOP);
+                for (int key : keys) { approximate.insert(key, 1); }
+
+                double totalError = 0;
+                long maxError = 0;
+                int inBound = 0;
+                for (Map.Entry<Integer, Integer> entry : exact.entrySet()) {
+                    long error = approximate.lookup(entry.getKey()) - entry.getValue();
+                    totalError += error;
+                    maxError = Math.max(maxError, error);
+                    if (error <= epsilon * n) { inBound++; }
+                }
+
+                Set<Integer> reported = new HashSet<>(approximate.topK(TOP));
+                reported.retainAll(expectedTop);
+                System.out.printf("%-8s %8s %10d %12.2f %12d %9.2f%% %8d%n", distribution, epsilon,
+                        (long) approximate.width() * approximate.depth() * Long.BYTES / 1024,
+                        totalError / exact.size(), maxError, 100.0 * inBound / exact.size(), reported.size());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package fadaf.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs ConcurrentFADAFBenchmark at 1 to 64 threads, writing one JSON result file per thread count.
+ * Usage: java -cp benchmarks.jar fadaf.bench.ThreadSweep [outputDir]
+ */
+public class ThreadSweep {
+
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws RunnerException {
+        String outputDir = args.length > 0 ? args[0] : ".";
+        for (int nThreads : THREADS) {
+            Options options = new OptionsBuilder()
+                    .include(ConcurrentFADAFBenchmark.class.getSimpleName())
+                    .threads(nThreads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(outputDir + "/concurrent-" + nThreads + "t.json")
+                    .build();
+            new Runner(options).run();
+        }
+    }
+
+}
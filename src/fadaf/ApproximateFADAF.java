@@ -0,0 +1,162 @@
+package fadaf;
+
+import java.util.*;
+import java.util.function.ToLongFunction;
+
+/*
+ * Approximate, fixed-memory stand-in for FADAF as a frequency counter. Counts go into a Count-Min sketch of
+ * depth x width long counters, updated conservatively: an insert only raises the counters that are below the
+ * key's new estimate, which keeps the estimate of every other key as low as possible. Next to the sketch, a
+ * cache of at most heavyHitters keys holds the most frequent keys seen so far, counted exactly from the moment
+ * they entered the cache. Memory depends only on epsilon, delta and heavyHitters, never on how many distinct
+ * keys are inserted.
+ *
+ * Guarantees, with N the total number of copies inserted and hashes treated as independent:
+ *   - lookup never undercounts: lookup(key) >= true count
+ *   - with probability at least 1 - delta, lookup(key) <= true count + epsilon * N
+ * Conservative updates never make an estimate worse than a plain Count-Min sketch, and are usually much
+ * better on skewed streams. The trade-off is that counts cannot be removed, so this mode is insert-only.
+ *
+ * Each row mixes the key's hash with its own seed, but the rows are only as independent as that hash. By
+ * default it is the 32-bit hashCode, so keys with equal hashCodes share every counter. Pass a 64-bit hash for
+ * keys whose hashCodes collide often.
+ */
+public class ApproximateFADAF<K extends Comparable<? super K>> {
+
+    // a key in the heavy-hitter cache
+    private static class Hitter<K> {
+        final K key;
+        long count; // sketch estimate when the key was admitted, plus every copy inserted since
+
+        Hitter(K key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+
+    private final int width;
+    private final int depth;
+    private final long[] counters; // depth rows of width counters
+    private final long[] seeds; // one per row
+    private final ToLongFunction<? super K> hasher;
+
+    private final int heavyHitters;
+    private final HashMap<K, Hitter<K>> hitters;
+    private final TreeSet<Hitter<K>> byCount; // least frequent first, so the first entry is evicted
+
+    private final int[] rowIndex; // reused by insert and lookup
+    private long nElems;
+
+    /* estimates are within epsilon * size() of the true count with probability at least 1 - delta */
+    public ApproximateFADAF(double epsilon, double delta, int heavyHitters) {
+        this(epsilon, delta, heavyHitters, Object::hashCode);
+    }
+
+    /* hashes keys with the given function, whose 64 bits are all mixed into every row */
+    public ApproximateFADAF(double epsilon, double delta, int heavyHitters, ToLongFunction<? super K> hasher) {
+        if (hasher == null) { throw new NullPointerException(); }
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1) || heavyHitters < 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.width = (int) Math.ceil(Math.E / epsilon);
+        this.depth = (int) Math.ceil(Math.log(1 / delta));
+        this.counters = new long[Math.multiplyExact(this.width, this.depth)];
+        this.seeds = new long[this.depth];
+        Random random = new Random(0x5EED);
+        for (int row = 0; row < this.depth; row++) { this.seeds[row] = random.nextLong(); }
+        this.hasher = hasher;
+
+        this.heavyHitters = heavyHitters;
+        this.hitters = new HashMap<>(Math.max(16, heavyHitters * 2));
+        this.byCount = new TreeSet<>((a, b) -> a.count != b.count ? Long.compare(a.count, b.count)
+                                                                   : a.key.compareTo(b.key));
+        this.rowIndex = new int[this.depth];
+        this.nElems = 0;
+    }
+
+    /* total number of copies inserted */
+    public long size() { return this.nElems; }
+
+    public int width() { return this.width; }
+
+    public int depth() { return this.depth; }
+
+    /* adds nCopy copies of the key, returning its new estimated count */
+    public long insert(K key, int nCopy) {
+        if (key == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        // conservative update: raises each of the key's counters to at most its new estimate
+        long estimate = this.estimate(key) + nCopy;
+        for (int row = 0; row < this.depth; row++) {
+            int i = this.rowIndex[row];
+            if (this.counters[i] < estimate) { this.counters[i] = estimate; }
+        }
+        this.nElems += nCopy;
+
+        Hitter<K> hitter = this.hitters.get(key);
+        if (hitter != null) {
+            this.byCount.remove(hitter);
+            hitter.count += nCopy;
+            this.byCount.add(hitter);
+            return hitter.count;
+        }
+        this.admit(key, estimate);
+        return estimate;
+    }
+
+    /* the estimated count of the key, never below the true count */
+    public long lookup(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        Hitter<K> hitter = this.hitters.get(key);
+        // both are upper bounds, and the cached one has stopped absorbing collisions
+        if (hitter != null) { return hitter.count; }
+        return this.estimate(key);
+    }
+
+    /* the k most frequent keys in the heavy-hitter cache, most frequent first. k is capped by heavyHitters */
+    public List<K> topK(int k) {
+        if (k < 0) { throw new IllegalArgumentException(); }
+
+        List<K> top = new ArrayList<>(Math.min(k, this.hitters.size()));
+        Iterator<Hitter<K>> iter = this.byCount.descendingIterator();
+        while (top.size() < k && iter.hasNext()) { top.add(iter.next().key); }
+        return top;
+    }
+
+    // the key's sketch estimate, leaving its counter positions in rowIndex
+    private long estimate(K key) {
+        long h = this.hasher.applyAsLong(key);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++) {
+            // murmur3's 64-bit finalizer, so every bit of the hash and the seed reaches the high bits
+            long x = h ^ this.seeds[row];
+            x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+            x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            x ^= x >>> 33;
+            // maps the high bits onto [0, width) without a modulo
+            int i = row * this.width + (int) (((x >>> 32) * this.width) >>> 32);
+            this.rowIndex[row] = i;
+            min = Math.min(min, this.counters[i]);
+        }
+        return min;
+    }
+
+    // adds the key to the cache if there is room, or if it now outranks the least frequent cached key
+    private void admit(K key, long estimate) {
+        if (this.heavyHitters == 0) { return; }
+        if (this.hitters.size() == this.heavyHitters) {
+            Hitter<K> least = this.byCount.first();
+            if (least.count >= estimate) { return; }
+            this.byCount.pollFirst();
+            this.hitters.remove(least.key);
+        }
+
+        Hitter<K> hitter = new Hitter<>(key, estimate);
+        this.hitters.put(key, hitter);
+        this.byCount.add(hitter);
+    }
+
+}
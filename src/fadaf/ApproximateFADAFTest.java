@@ -0,0 +1,103 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ApproximateFADAFTest {
+
+    @Test
+    public void testSmallCounts() {
+        ApproximateFADAF<String> fadaf = new ApproximateFADAF<>(0.001, 0.01, 2);
+        assertEquals(2719, fadaf.width());
+        assertEquals(5, fadaf.depth());
+
+        assertEquals(1, fadaf.insert("String", 1));
+        assertEquals(2, fadaf.insert("STRING", 2));
+        assertEquals(4, fadaf.insert("ST", 4));
+        assertEquals(5, fadaf.insert("ST", 1));
+        assertEquals(8, fadaf.size());
+
+        // few keys in a wide sketch do not collide
+        assertEquals(5, fadaf.lookup("ST"));
+        assertEquals(2, fadaf.lookup("STRING"));
+        assertEquals(1, fadaf.lookup("String"));
+        assertEquals(0, fadaf.lookup("Str"));
+        assertEquals(Arrays.asList("ST", "STRING"), fadaf.topK(5));
+    }
+
+    @Test
+    public void testErrorBounds() {
+        double epsilon = 0.001, delta = 0.01;
+        ApproximateFADAF<Integer> fadaf = new ApproximateFADAF<>(epsilon, delta, 20);
+        HashMap<Integer, Integer> exact = new HashMap<>();
+
+        // skewed stream over 200000 distinct keys, key i drawn with probability about 1 / i
+        Random random = new Random(3);
+        int n = 1000000;
+        for (int i = 0; i < n; i++) {
+            int key = (int) Math.exp(random.nextDouble() * Math.log(200000));
+            fadaf.insert(key, 1);
+            exact.merge(key, 1, Integer::sum);
+        }
+        assertEquals(n, fadaf.size());
+
+        int outOfBound = 0;
+        for (Map.Entry<Integer, Integer> entry : exact.entrySet()) {
+            long estimate = fadaf.lookup(entry.getKey());
+            assertTrue(estimate >= entry.getValue());
+            if (estimate > entry.getValue() + epsilon * n) { outOfBound++; }
+        }
+        assertTrue(outOfBound <= delta * exact.size());
+
+        List<Integer> expected = new ArrayList<>(exact.keySet());
+        expected.sort((a, b) -> exact.get(b) - exact.get(a));
+        assertEquals(expected.subList(0, 5), fadaf.topK(5));
+    }
+
+    @Test
+    public void testHasherSeparatesEqualHashCodes() {
+        // "Aa" and "BB" share a hashCode, so every string built from them does too
+        List<String> keys = new ArrayList<>(Collections.singletonList(""));
+        for (int i = 0; i < 6; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String key : keys) {
+                longer.add(key + "Aa");
+                longer.add(key + "BB");
+            }
+            keys = longer;
+        }
+
+        ApproximateFADAF<String> byHashCode = new ApproximateFADAF<>(0.001, 0.01, 0);
+        ApproximateFADAF<String> byHasher = new ApproximateFADAF<>(0.001, 0.01, 0, key -> {
+            long h = 0xCBF29CE484222325L; // FNV-1a
+            for (int i = 0; i < key.length(); i++) { h = (h ^ key.charAt(i)) * 0x100000001B3L; }
+            return h;
+        });
+        byHashCode.insert(keys.get(0), 1000);
+        byHasher.insert(keys.get(0), 1000);
+
+        assertEquals(1000, byHashCode.lookup(keys.get(1)));
+        int collided = 0;
+        for (String key : keys.subList(1, keys.size())) { if (byHasher.lookup(key) > 0) { collided++; } }
+        assertEquals(0, collided);
+    }
+
+    // test exceptions
+    @Test (expected = NullPointerException.class)
+    public void testConstructorThrowsNPE() { new ApproximateFADAF<String>(0.1, 0.1, 0, null); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new ApproximateFADAF<String>(0, 0.01, 10); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertThrowsNPE() { new ApproximateFADAF<String>(0.01, 0.01, 10).insert(null, 1); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { new ApproximateFADAF<String>(0.01, 0.01, 10).insert("S", 0); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTopKThrowsIAE() { new ApproximateFADAF<String>(0.01, 0.01, 10).topK(-1); }
+
+}
@@ -0,0 +1,382 @@
+package fadaf;
+
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/*
+ * HashTable bounded by a total weight, for use as a cache in front of slower storage. Entries weigh 1 unless
+ * a weigher is given, so by default the bound is an entry count. Eviction follows W-TinyLFU, every step O(1):
+ *
+ *   - new entries enter a small LRU window holding 1% of the weight, so a burst of new keys gets a chance
+ *   - an entry pushed out of the window only enters the main area if a frequency sketch says it has been
+ *     used more often than the entry it would evict, which keeps one-off keys and scans from flushing it
+ *   - the main area is a segmented LRU: entries start on probation and are promoted to a protected segment,
+ *     80% of the main weight, when hit again
+ *
+ * The sketch is a count-min sketch of small saturating counters over recent accesses, halved every 10 * width
+ * additions so old popularity fades. Entries may carry a time to live, checked lazily: an expired entry is
+ * only dropped when it is next touched, or when eviction reaches it at the end of its queue, where it goes
+ * whatever its frequency. Until then it still counts toward size() and weight().
+ */
+@SuppressWarnings("unchecked")
+public class BoundedHashTable<K, D> {
+
+    private static final int MIN_THRESHOLD = 10;
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final byte WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+    private static final class Node<K, D> {
+        final K key;
+        D data;
+        int weight;
+        long expiresAt; // clock time the entry expires at, NEVER if it does not
+        byte queue;
+        Node<K, D> prev, next;
+
+        Node(K key, D data, int weight, long expiresAt) {
+            this.key = key;
+            this.data = data;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // doubly linked list from most to least recently used, around a sentinel
+    private static final class Queue<K, D> {
+        final Node<K, D> sentinel = new Node<>(null, null, 0, NEVER);
+        long weight;
+
+        Queue() { this.sentinel.prev = this.sentinel.next = this.sentinel; }
+
+        void addFirst(Node<K, D> node) {
+            node.next = this.sentinel.next;
+            node.prev = this.sentinel;
+            this.sentinel.next.prev = node;
+            this.sentinel.next = node;
+            this.weight += node.weight;
+        }
+
+        void unlink(Node<K, D> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = node.next = null;
+            this.weight -= node.weight;
+        }
+
+        void moveToFront(Node<K, D> node) {
+            this.unlink(node);
+            this.addFirst(node);
+        }
+
+        // least recently used node, null if empty
+        Node<K, D> last() { return this.sentinel.prev == this.sentinel ? null : this.sentinel.prev; }
+    }
+
+    /* counts since the table was created */
+    public static final class Stats {
+        private final long hits, misses, evictions, expirations;
+
+        Stats(long hits, long misses, long evictions, long expirations) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+
+        public long hitCount() { return this.hits; }
+
+        public long missCount() { return this.misses; }
+
+        /* entries dropped to stay within the maximum weight, including new ones the admission filter refused */
+        public long evictionCount() { return this.evictions; }
+
+        public long expirationCount() { return this.expirations; }
+
+        /* share of lookups that hit, 0 if there were none */
+        public double hitRate() {
+            long lookups = this.hits + this.misses;
+            return lookups == 0 ? 0 : (double) this.hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d evictions=%d expirations=%d hitRate=%.4f",
+                                 this.hits, this.misses, this.evictions, this.expirations, this.hitRate());
+        }
+    }
+
+    private final HashTable<K, Node<K, D>> index;
+    private final Queue<K, D> window = new Queue<>(), probation = new Queue<>(), protect = new Queue<>();
+    private final FrequencySketch sketch;
+
+    private final long maximumWeight;
+    private final long windowMax, mainMax, protectedMax;
+    private final ToIntBiFunction<? super K, ? super D> weigher;
+    private final long defaultTtlMillis;
+    private final LongSupplier clock;
+
+    private int nElems;
+    private long hits, misses, evictions, expirations;
+
+    /* at most maximumSize entries, none of which expire */
+    public BoundedHashTable(long maximumSize) { this(maximumSize, null, 0, System::currentTimeMillis); }
+
+    /* at most maximumWeight in total, weighing entries with the weigher, or as 1 each if it is null. weights
+       must be at least 1, as entries weighing nothing would escape the bound. entries inserted without their own time to live expire defaultTtlMillis after insertion, never if it is 0.
+       time is read from the clock in milliseconds */
+    public BoundedHashTable(long maximumWeight, ToIntBiFunction<? super K, ? super D> weigher, long defaultTtlMillis,
+                            LongSupplier clock) {
+        if (clock == null) { throw new NullPointerException(); }
+        if (maximumWeight < 1 || defaultTtlMillis < 0) { throw new IllegalArgumentException(); }
+
+        this.maximumWeight = maximumWeight;
+        this.windowMax = Math.max(1, maximumWeight / 100);
+        this.mainMax = maximumWeight - this.windowMax;
+        // 80% of the main area, rounded down without overflowing, and never 0 when there is a main area at all
+        this.protectedMax = Math.min(this.mainMax, Math.max(1, this.mainMax / 5 * 4 + this.mainMax % 5 * 4 / 5));
+        this.weigher = weigher;
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.clock = clock;
+
+        // sized so that an unweighted table never rehashes. a weighted one holds an unknown count, so it grows
+        long expected = weigher == null ? maximumWeight : MIN_THRESHOLD;
+        this.index = new HashTable<>((int) Math.min(1 << 30, Math.max(MIN_THRESHOLD, expected * 3 / 2 + 1)));
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, maximumWeight));
+        this.nElems = 0;
+    }
+
+    /**
+     * Inserts the key-data pair with the default time to live, returning whether it is inserted
+     * @return true if the pair is inserted and false if the key is already present
+     * @throws NullPointerException if key or data is null
+     */
+    public boolean insert(K key, D data) { return this.insert(key, data, this.defaultTtlMillis); }
+
+    /**
+     * Inserts the key-data pair, expiring ttlMillis after now, or never if it is 0. The pair may be evicted at
+     * once if it is heavier than the cache can hold, or less popular than every entry it would displace
+     * @return true if the pair is inserted and false if the key is already present
+     * @throws NullPointerException if key or data is null
+     * @throws IllegalArgumentException if ttlMillis is negative or the pair weighs less than 1
+     */
+    public boolean insert(K key, D data, long ttlMillis) {
+        if (key == null || data == null) { throw new NullPointerException(); }
+        if (ttlMillis < 0) { throw new IllegalArgumentException(); }
+
+        this.sketch.increment(key);
+        Node<K, D> node = this.find(key);
+        if (node != null) { return false; }
+
+        long expiresAt = ttlMillis == 0 ? NEVER : this.clock.getAsLong() + ttlMillis;
+        node = new Node<>(key, data, this.weigh(key, data), expiresAt);
+        node.queue = WINDOW;
+        this.index.insert(key, node);
+        this.window.addFirst(node);
+        this.nElems++;
+        this.evict();
+        return true;
+    }
+
+    /**
+     * Updates the data in the given key without changing its time to live, returning whether it is updated
+     * @return true if the data is updated and false if the key is not found
+     * @throws NullPointerException if key or new data is null
+     * @throws IllegalArgumentException if the pair weighs less than 1
+     */
+    public boolean update(K key, D newData) {
+        if (key == null || newData == null) { throw new NullPointerException(); }
+
+        Node<K, D> node = this.find(key);
+        if (node == null) { return false; }
+
+        // weighs first, so a rejected weight leaves the entry where it was
+        int weight = this.weigh(key, newData);
+        Queue<K, D> queue = this.queue(node);
+        queue.unlink(node);
+        node.data = newData;
+        node.weight = weight;
+        queue.addFirst(node);
+        this.evict();
+        return true;
+    }
+
+    /**
+     * Deletes the entry of the given key, returning whether it is deleted
+     * @return true if the pair is deleted and false if the key is not found
+     * @throws NullPointerException if key is null
+     */
+    public boolean delete(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        Node<K, D> node = this.find(key);
+        if (node == null) { return false; }
+        this.drop(node);
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the given key, counting a hit or a miss
+     * @return the key's data, or null if the key is not found or has expired
+     * @throws NullPointerException if key is null
+     */
+    public D lookup(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        this.sketch.increment(key);
+        Node<K, D> node = this.find(key);
+        if (node == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        if (node.queue == WINDOW) { this.window.moveToFront(node); }
+        else if (node.queue == PROTECTED) { this.protect.moveToFront(node); }
+        else {
+            // a second hit promotes out of probation, demoting the protected segment's oldest if it is full
+            this.probation.unlink(node);
+            node.queue = PROTECTED;
+            this.protect.addFirst(node);
+            while (this.protect.weight > this.protectedMax) {
+                Node<K, D> demoted = this.protect.last();
+                this.protect.unlink(demoted);
+                demoted.queue = PROBATION;
+                this.probation.addFirst(demoted);
+            }
+        }
+        return node.data;
+    }
+
+    /* number of entries held, including expired ones not yet dropped */
+    public int size() { return this.nElems; }
+
+    public long weight() { return this.window.weight + this.probation.weight + this.protect.weight; }
+
+    public long maximumWeight() { return this.maximumWeight; }
+
+    public Stats stats() { return new Stats(this.hits, this.misses, this.evictions, this.expirations); }
+
+    // the live node of the key, dropping it first if it has expired
+    private Node<K, D> find(K key) {
+        Node<K, D> node = this.index.lookup(key);
+        if (node != null && this.isExpired(node)) {
+            this.drop(node);
+            this.expirations++;
+            return null;
+        }
+        return node;
+    }
+
+    private boolean isExpired(Node<K, D> node) {
+        return node.expiresAt != NEVER && this.clock.getAsLong() >= node.expiresAt;
+    }
+
+    private int weigh(K key, D data) {
+        if (this.weigher == null) { return 1; }
+        int weight = this.weigher.applyAsInt(key, data);
+        if (weight < 1) { throw new IllegalArgumentException(); }
+        return weight;
+    }
+
+    private Queue<K, D> queue(Node<K, D> node) {
+        return node.queue == WINDOW ? this.window : node.queue == PROBATION ? this.probation : this.protect;
+    }
+
+    private void drop(Node<K, D> node) {
+        this.queue(node).unlink(node);
+        this.index.delete(node.key);
+        this.nElems--;
+    }
+
+    // drops an entry to make room, counted as an expiration if it had expired anyway
+    private void evict(Node<K, D> node) {
+        if (this.isExpired(node)) { this.expirations++; } else { this.evictions++; }
+        this.drop(node);
+    }
+
+    // moves the window's overflow into the main area through the admission filter, then trims the main area
+    private void evict() {
+        while (this.window.weight > this.windowMax) {
+            Node<K, D> candidate = this.window.last();
+            this.window.unlink(candidate);
+            candidate.queue = PROBATION;
+            this.probation.addFirst(candidate);
+            this.admit(candidate);
+        }
+        // an update may have made a main entry heavier
+        while (this.probation.weight + this.protect.weight > this.mainMax) {
+            Node<K, D> victim = this.probation.last() != null ? this.probation.last() : this.protect.last();
+            this.evict(victim);
+        }
+    }
+
+    // keeps the candidate, now on probation, only if it is used more often than each entry it displaces
+    private void admit(Node<K, D> candidate) {
+        if (candidate.weight > this.mainMax) {
+            this.evict(candidate);
+            return;
+        }
+
+        int candidateFrequency = this.sketch.frequency(candidate.key);
+        while (this.probation.weight + this.protect.weight > this.mainMax) {
+            // the candidate sits at the head of probation, so it is the last entry there only when alone
+            Node<K, D> victim = this.probation.last();
+            if (victim == candidate) { victim = this.protect.last(); }
+
+            if (victim != null && (this.isExpired(victim) || candidateFrequency > this.sketch.frequency(victim.key))) {
+                this.evict(victim);
+            } else {
+                this.evict(candidate);
+                return;
+            }
+        }
+    }
+
+    // frequencies of recent accesses in four rows of saturating 4-bit counts, held one per byte
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL,
+                                             0xCBF29CE484222325L};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] counters;
+        private final int width;
+        private final int resetAt;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            this.width = Integer.highestOneBit(Math.max(16, expectedEntries) - 1) << 1;
+            this.counters = new byte[SEEDS.length * this.width];
+            this.resetAt = 10 * this.width;
+        }
+
+        int frequency(Object key) {
+            int h = key.hashCode(), min = MAX_COUNT;
+            for (int row = 0; row < SEEDS.length; row++) { min = Math.min(min, this.counters[this.index(h, row)]); }
+            return min;
+        }
+
+        void increment(Object key) {
+            int h = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < SEEDS.length; row++) {
+                int i = this.index(h, row);
+                if (this.counters[i] < MAX_COUNT) {
+                    this.counters[i]++;
+                    added = true;
+                }
+            }
+            // ages every count by half, so keys that were popular long ago give way to those popular now
+            if (added && ++this.additions == this.resetAt) {
+                for (int i = 0; i < this.counters.length; i++) { this.counters[i] >>= 1; }
+                this.additions /= 2;
+            }
+        }
+
+        private int index(int h, int row) {
+            long x = (h ^ SEEDS[row]) * 0x9E3779B97F4A7C15L;
+            x ^= x >>> 29;
+            return row * this.width + (int) (x >>> 32 & (this.width - 1));
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package fadaf;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class BoundedHashTableTest {
+
+    long now;
+    BoundedHashTable<Integer, String> table1;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        table1 = new BoundedHashTable<>(100, null, 0, () -> now);
+        for (int i = 0; i < 50; i++) { assertTrue(table1.insert(i, "v" + i)); }
+        assertEquals(50, table1.size());
+    }
+
+    @Test
+    public void testOperations() {
+        assertFalse(table1.insert(7, "other"));
+        assertEquals("v7", table1.lookup(7));
+        assertNull(table1.lookup(77));
+        assertTrue(table1.update(7, "seven"));
+        assertFalse(table1.update(77, "seventy-seven"));
+        assertEquals("seven", table1.lookup(7));
+        assertTrue(table1.delete(7));
+        assertFalse(table1.delete(7));
+        assertNull(table1.lookup(7));
+        assertEquals(49, table1.size());
+
+        BoundedHashTable.Stats stats = table1.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(2, stats.missCount());
+        assertEquals(0.5, stats.hitRate(), 0);
+    }
+
+    @Test
+    public void testStaysWithinMaximum() {
+        for (int i = 50; i < 100000; i++) {
+            table1.insert(i, "v" + i);
+            assertTrue(table1.size() <= 100);
+        }
+        assertEquals(100, table1.size());
+        assertEquals(100, table1.weight());
+        assertEquals(100000 - 100, table1.stats().evictionCount());
+    }
+
+    @Test
+    public void testWeigherBoundsTotalWeight() {
+        BoundedHashTable<Integer, String> table = new BoundedHashTable<>(1000, (k, v) -> v.length(), 0, () -> now);
+        Random random = new Random(24);
+        for (int i = 0; i < 10000; i++) {
+            table.insert(i, "x".repeat(1 + random.nextInt(50)));
+            assertTrue(table.weight() <= 1000);
+        }
+        // heavier than the whole cache, so refused
+        assertTrue(table.insert(-1, "x".repeat(1001)));
+        assertNull(table.lookup(-1));
+        assertTrue(table.weight() <= 1000);
+    }
+
+    @Test
+    public void testTimeToLive() {
+        BoundedHashTable<Integer, String> table = new BoundedHashTable<>(100, null, 1000, () -> now);
+        assertTrue(table.insert(1, "one"));
+        assertTrue(table.insert(2, "two", 5000));
+        now += 999;
+        assertEquals("one", table.lookup(1));
+        now += 1;
+        assertNull(table.lookup(1));
+        assertEquals("two", table.lookup(2));
+        assertTrue(table.insert(1, "again"));
+        assertFalse(table.update(3, "three"));
+
+        now += 4000;
+        assertFalse(table.delete(2));
+        assertEquals(1, table.size());
+        assertEquals(2, table.stats().expirationCount());
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScan() {
+        BoundedHashTable<Integer, String> table = new BoundedHashTable<>(100);
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (table.lookup(key) == null) { table.insert(key, "hot"); }
+            }
+        }
+        // a scan of one-off keys five times the size of the cache
+        for (int key = 1000; key < 1500; key++) { table.insert(key, "cold"); }
+        for (int key = 0; key < 50; key++) { assertEquals("hot", table.lookup(key)); }
+    }
+
+    @Test
+    public void testSmallCacheProtectsHitEntries() {
+        // one window slot and four main slots, three of them protected
+        BoundedHashTable<Integer, String> table = new BoundedHashTable<>(5);
+        for (int key = 0; key < 4; key++) { table.insert(key, "hit"); }
+        table.insert(100, "pushes the last key out of the window");
+        for (int key = 0; key < 3; key++) { assertEquals("hit", table.lookup(key)); }
+
+        // newcomers more frequent than any entry may only displace what is on probation
+        for (int key = 200; key < 206; key++) {
+            for (int i = 0; i < 10; i++) { table.lookup(key); }
+            table.insert(key, "new");
+        }
+        for (int key = 0; key < 3; key++) { assertEquals("hit", table.lookup(key)); }
+        assertEquals(5, table.size());
+    }
+
+    @Test
+    public void testBeatsLRUOnSkewedTrafficWithScans() {
+        int size = 1000;
+        BoundedHashTable<Integer, Integer> tinyLfu = new BoundedHashTable<>(size);
+        LinkedHashMap<Integer, Integer> lru = new LinkedHashMap<Integer, Integer>(size * 2, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) { return size() > size; }
+        };
+
+        Random random = new Random(24);
+        int lruHits = 0, scanKey = 1 << 20;
+        for (int i = 0; i < 500000; i++) {
+            // skewed keys over a space 50 times the cache, interleaved with a scan of keys never seen again
+            int key = i % 4 == 0 ? scanKey++ : (int) (50 * size * Math.pow(random.nextDouble(), 3));
+            if (tinyLfu.lookup(key) == null) { tinyLfu.insert(key, key); }
+            if (lru.get(key) != null) { lruHits++; } else { lru.put(key, key); }
+        }
+
+        double lruHitRate = lruHits / 500000.0;
+        assertTrue(tinyLfu.stats() + " vs LRU " + lruHitRate, tinyLfu.stats().hitRate() > lruHitRate * 1.2);
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new BoundedHashTable<Integer, String>(0); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTtlThrowsIAE() { table1.insert(1000, "v", -1); }
+
+    @Test
+    public void testZeroWeightThrowsIAE() {
+        BoundedHashTable<Integer, String> table = new BoundedHashTable<>(100, (k, v) -> v.length(), 0, () -> now);
+        try {
+            table.insert(1, "");
+            fail();
+        } catch (IllegalArgumentException e) { /* expected */ }
+        assertEquals(0, table.size());
+
+        assertTrue(table.insert(1, "one"));
+        try {
+            table.update(1, "");
+            fail();
+        } catch (IllegalArgumentException e) { /* expected */ }
+        assertEquals("one", table.lookup(1));
+        assertEquals(3, table.weight());
+    }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { table1.insert(null, "null"); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertDataThrowsNPE() { table1.insert(1000, null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testLookupThrowsNPE() { table1.lookup(null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testDeleteThrowsNPE() { table1.delete(null); }
+
+}
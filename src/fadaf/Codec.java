@@ -0,0 +1,86 @@
+package fadaf;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Binary encoding of keys or data, used wherever a FADAF is written outside the heap.
+ */
+public interface Codec<T> {
+
+    /* number of bytes write will produce for the value */
+    int size(T value);
+
+    void write(T value, ByteBuffer out);
+
+    /* reads a value that was written as the given number of bytes */
+    T read(ByteBuffer in, int length);
+
+    Codec<String> STRING = new Codec<String>() {
+        public int size(String value) { return value.getBytes(StandardCharsets.UTF_8).length; }
+
+        public void write(String value, ByteBuffer out) { out.put(value.getBytes(StandardCharsets.UTF_8)); }
+
+        public String read(ByteBuffer in, int length) {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    Codec<Integer> INTEGER = new Codec<Integer>() {
+        public int size(Integer value) { return Integer.BYTES; }
+
+        public void write(Integer value, ByteBuffer out) { out.putInt(value); }
+
+        public Integer read(ByteBuffer in, int length) { return in.getInt(); }
+    };
+
+    Codec<Long> LONG = new Codec<Long>() {
+        public int size(Long value) { return Long.BYTES; }
+
+        public void write(Long value, ByteBuffer out) { out.putLong(value); }
+
+        public Long read(ByteBuffer in, int length) { return in.getLong(); }
+    };
+
+    Codec<Double> DOUBLE = new Codec<Double>() {
+        public int size(Double value) { return Double.BYTES; }
+
+        public void write(Double value, ByteBuffer out) { out.putDouble(value); }
+
+        public Double read(ByteBuffer in, int length) { return in.getDouble(); }
+    };
+
+    /* falls back on Java serialization, so any Serializable value works at the cost of size and speed */
+    @SuppressWarnings("unchecked")
+    static <T> Codec<T> serializable() {
+        return new Codec<T>() {
+            public int size(T value) { return serialize(value).length; }
+
+            public void write(T value, ByteBuffer out) { out.put(serialize(value)); }
+
+            public T read(ByteBuffer in, int length) {
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                try (ObjectInputStream stream = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (T) stream.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+
+            private byte[] serialize(T value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream stream = new ObjectOutputStream(bytes)) {
+                    stream.writeObject(value);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                return bytes.toByteArray();
+            }
+        };
+    }
+
+}
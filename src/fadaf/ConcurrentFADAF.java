@@ -0,0 +1,98 @@
+package fadaf;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Thread-safe FADAF. Counts are mirrored into a ConcurrentHashMap so lookup never takes a lock. The ordered
+ * side is a PersistentDAFTree: writers serialize on a lock, build the next version by path copying and publish
+ * it through a volatile field, while readers take whatever version is current and never wait. snapshot()
+ * hands out that version itself, so a long report reads one consistent state however long it runs, without
+ * holding up writers.
+ */
+public class ConcurrentFADAF<K extends Comparable<? super K>, D> {
+
+    private static final int MIN_THRESHOLD = 10;
+
+    private volatile PersistentDAFTree<K, D> tree;
+    private final ConcurrentHashMap<K, Integer> counts;
+    private final ReentrantLock writeLock;
+
+    public ConcurrentFADAF(int capacity) {
+        if (capacity < MIN_THRESHOLD) { throw new IllegalArgumentException(); }
+        this.tree = PersistentDAFTree.empty();
+        this.counts = new ConcurrentHashMap<>(capacity);
+        this.writeLock = new ReentrantLock();
+    }
+
+    public int size() { return this.tree.size(); }
+
+    public int nUniqueKeys() { return this.counts.size(); }
+
+    /* the current version, in O(1). it never changes, and is reclaimed once neither this nor any reader holds it */
+    public PersistentDAFTree<K, D> snapshot() { return this.tree; }
+
+    public boolean insert(K key, D data, int nCopy) {
+        this.writeLock.lock();
+        try {
+            this.tree = this.tree.insert(key, data, nCopy);
+            Integer count = this.counts.get(key);
+            this.counts.put(key, count == null ? nCopy : count + nCopy);
+            return count == null;
+        } finally { this.writeLock.unlock(); }
+    }
+
+    public int lookup(K key) {
+        Integer count = this.counts.get(key);
+        return count == null ? 0 : count;
+    }
+
+    public boolean remove(K key, int nCopy) {
+        this.writeLock.lock();
+        try {
+            PersistentDAFTree<K, D> next = this.tree.remove(key, nCopy);
+            // key not present
+            if (next == this.tree) { return false; }
+
+            this.tree = next;
+            int count = this.counts.get(key) - nCopy;
+            if (count <= 0) { this.counts.remove(key); }
+            else { this.counts.put(key, count); }
+            return true;
+        } finally { this.writeLock.unlock(); }
+    }
+
+    public boolean removeAll(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        this.writeLock.lock();
+        try {
+            // key not present
+            if (this.counts.remove(key) == null) { return false; }
+            this.tree = this.tree.removeAll(key);
+            return true;
+        } finally { this.writeLock.unlock(); }
+    }
+
+    public boolean update(K key, D newData) {
+        this.writeLock.lock();
+        try {
+            PersistentDAFTree<K, D> next = this.tree.update(key, newData);
+            // key not present
+            if (next == this.tree) { return false; }
+
+            this.tree = next;
+            return true;
+        } finally { this.writeLock.unlock(); }
+    }
+
+    public List<K> getAllKeys(boolean allowDuplicate) { return this.tree.getAllKeys(allowDuplicate); }
+
+    public List<K> getUniqueKeysInRange(K lower, K upper) { return this.tree.getUniqueKeysInRange(lower, upper); }
+
+    public K getMinKey() { return this.tree.getMinKey(); }
+
+    public K getMaxKey() { return this.tree.getMaxKey(); }
+
+}
@@ -0,0 +1,154 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentFADAFTest {
+
+    ConcurrentFADAF<String, Double> fadaf1;
+
+    @Before
+    public void setUp() {
+        fadaf1 = new ConcurrentFADAF<>(10);
+
+        String[] keys = new String[]{"String", "STRING", "ST", "Str"};
+        Double[] data = new Double[]{0.6, -10.2, -20.202, -4.8};
+        int[] counts = {1, 2, 4, 1};
+        for (int j = 0; j < keys.length; j++) { assertTrue(fadaf1.insert(keys[j], data[j], counts[j])); }
+
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 2.0, 2));
+        assertEquals(11, fadaf1.size());
+        assertEquals(5, fadaf1.nUniqueKeys());
+
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(0, fadaf1.lookup("STR"));
+        assertTrue(fadaf1.update("ST", 20.202));
+        assertFalse(fadaf1.update("STR", 0.2));
+    }
+
+    @Test
+    public void testOrderedQueries() {
+        assertEquals("SS", fadaf1.getMinKey());
+        assertEquals("String", fadaf1.getMaxKey());
+        assertEquals(Arrays.asList("SS", "SS", "ST", "ST", "ST", "ST", "ST", "STRING", "STRING", "Str", "String"),
+                fadaf1.getAllKeys(true));
+        assertEquals(Arrays.asList("STRING", "Str", "String"), fadaf1.getUniqueKeysInRange("ST", "string"));
+
+        assertTrue(fadaf1.remove("ST", 4));
+        assertEquals(1, fadaf1.lookup("ST"));
+        assertTrue(fadaf1.removeAll("SS"));
+        assertFalse(fadaf1.removeAll("SS"));
+        assertFalse(fadaf1.remove("SS", 1));
+        assertEquals(Arrays.asList("ST", "STRING", "Str", "String"), fadaf1.getAllKeys(false));
+        assertEquals(5, fadaf1.size());
+    }
+
+    @Test
+    public void testReadersSeeConsistentViewsDuringWrites() throws InterruptedException {
+        ConcurrentFADAF<Integer, Integer> fadaf = new ConcurrentFADAF<>(1024);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            writers[w] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    int key = random.nextInt(2000);
+                    if (random.nextBoolean()) { fadaf.insert(key, key, 1); }
+                    else { fadaf.remove(key, 1); }
+                }
+            });
+        }
+        Thread[] readers = new Thread[4];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 2000; i++) {
+                        List<Integer> keys = fadaf.getUniqueKeysInRange(-1, 2000);
+                        for (int k = 1; k < keys.size(); k++) { assertTrue(keys.get(k - 1) < keys.get(k)); }
+                        fadaf.lookup(i);
+                        fadaf.getMinKey();
+                    }
+                } catch (Throwable t) { failure.set(t); }
+            });
+        }
+
+        for (Thread writer : writers) { writer.start(); }
+        for (Thread reader : readers) { reader.start(); }
+        for (Thread reader : readers) { reader.join(); }
+        running.set(false);
+        for (Thread writer : writers) { writer.join(); }
+
+        assertNull(failure.get());
+        int total = 0;
+        for (int key : fadaf.getAllKeys(false)) { total += fadaf.lookup(key); }
+        assertEquals(total, fadaf.size());
+        assertEquals(fadaf.getAllKeys(true).size(), fadaf.size());
+    }
+
+    @Test
+    public void testSnapshotIsFrozen() {
+        PersistentDAFTree<String, Double> snapshot = fadaf1.snapshot();
+        assertTrue(fadaf1.removeAll("ST"));
+        assertTrue(fadaf1.insert("A", 1.0, 3));
+
+        assertEquals(Arrays.asList("SS", "ST", "STRING", "Str", "String"), snapshot.getAllKeys(false));
+        assertEquals(5, snapshot.lookup("ST"));
+        assertEquals(20.202, snapshot.getData("ST"), 0);
+        assertEquals(11, snapshot.size());
+        assertEquals(Arrays.asList("A", "SS", "STRING", "Str", "String"), fadaf1.snapshot().getAllKeys(false));
+    }
+
+    @Test
+    public void testSnapshotsStayConsistentDuringWrites() throws InterruptedException {
+        ConcurrentFADAF<Integer, Integer> fadaf = new ConcurrentFADAF<>(1024);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (running.get()) {
+                int key = random.nextInt(2000);
+                if (random.nextBoolean()) { fadaf.insert(key, key, 1 + random.nextInt(3)); }
+                else { fadaf.remove(key, 1); }
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 500; i++) {
+                PersistentDAFTree<Integer, Integer> snapshot = fadaf.snapshot();
+                // copies counted key by key add up to the version's own total, even while writers move on
+                int total = 0;
+                for (int key : snapshot.getAllKeys(false)) { total += snapshot.lookup(key); }
+                assertEquals(snapshot.size(), total);
+                assertEquals(snapshot.size(), snapshot.getAllKeys(true).size());
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new ConcurrentFADAF<String, Double>(9); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { fadaf1.insert(null, 2.0, 2); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert("Str", 2.0, 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testLookupThrowsNPE() { fadaf1.lookup(null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testRemoveAllThrowsNPE() { fadaf1.removeAll(null); }
+
+}
@@ -0,0 +1,718 @@
+package fadaf;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+@SuppressWarnings("rawtypes")
+public class DAFTree<K extends Comparable<? super K>, D> implements Iterable {
+
+    private DAFNode<K, D> root;
+    private int nElems;
+    private int nUnique;
+    private final boolean balanced; // keeps the tree AVL balanced on insert and removal
+
+    protected class DAFNode<K extends Comparable<? super K>, D> {
+        K key;
+        D data;
+        int count; // duplicate counter
+        int height; // longest path down to a leaf, counting this node
+        int size; // unique keys in this subtree
+        int total; // copies of all keys in this subtree
+        DAFNode<K, D> left, right, parent;
+        // FADAF's NodeIndex chains through its tree nodes. unused by a standalone tree
+        int hash;
+        DAFNode<K, D> nextInBucket;
+
+        public DAFNode(K key, D data) { this(key, data, 1); }
+
+        public DAFNode(K key, D data, int nCopy) {
+            if (key == null || data == null) { throw new NullPointerException(); }
+            if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+            this.key = key;
+            this.data = data;
+            this.left = null;
+            this.right = null;
+            this.parent = null;
+            this.count = nCopy;
+            this.height = 1;
+            this.size = 1;
+            this.total = nCopy;
+        }
+    }
+
+    public DAFTree() { this(false); }
+
+    public DAFTree(boolean balanced) {
+        this.root = null;
+        this.nElems = this.nUnique = 0;
+        this.balanced = balanced;
+    }
+
+    public boolean isBalanced() { return this.balanced; }
+
+    public int size() { return this.nElems; }
+
+    public int nUniqueKeys() { return this.nUnique; }
+
+    public DAFNode<K, D> insert(K key, D data, int nCopy) {
+        // NPE and IAE caught by DAFNode constructor
+        DAFNode<K, D> node = new DAFNode(key, data, nCopy);
+
+        // inserts node at root if tree is empty. otherwise, finds position to insert
+        if (this.root == null) {
+            this.root = node;
+            this.nElems += nCopy;
+            this.nUnique++;
+            return this.root;
+        }
+
+        DAFNode<K, D> curr = this.root;
+        for (int depth = 1; curr != null; depth++) {
+            int compared = key.compareTo(curr.key);
+            if (Metrics.ENABLED && (compared == 0 || (compared < 0 ? curr.left : curr.right) == null)) {
+                Metrics.TREE.recordSearch(depth);
+            }
+
+            // key already in table
+            if (compared == 0) {
+                addCopies(curr, nCopy);
+                this.nElems += nCopy;
+                return curr;
+            } else if (compared < 0) {
+                // key not in table, or loop again on left side
+                if (curr.left == null) {
+                    curr.left = node;
+                    curr.left.parent = curr;
+                    this.nElems += nCopy;
+                    this.nUnique++;
+                    rebalance(curr);
+                    return node;
+                } else { curr = curr.left; }
+            } else {
+                if (curr.right == null) {
+                    curr.right = node;
+                    curr.right.parent = curr;
+                    this.nElems += nCopy;
+                    this.nUnique++;
+                    rebalance(curr);
+                    return node;
+                } else { curr = curr.right; }
+            }
+        }
+        return curr;
+    }
+
+    /* inserts a key known to be absent and greater than the finger's key, starting the search from the finger
+       instead of the root. for ascending keys this only climbs as far as the new key's subtree, so a run of
+       nearby keys shares the upper part of its path. a null finger searches from the root */
+    public DAFNode<K, D> insertAfter(DAFNode<K, D> finger, K key, D data, int nCopy) {
+        DAFNode<K, D> node = new DAFNode<>(key, data, nCopy);
+        this.nElems += nCopy;
+        this.nUnique++;
+        if (this.root == null) {
+            this.root = node;
+            return node;
+        }
+
+        // climbs until the key falls inside the subtree, i.e. past a left child whose parent is above the key
+        DAFNode<K, D> curr = finger == null ? this.root : finger;
+        while (curr.parent != null && (curr.parent.right == curr || curr.parent.key.compareTo(key) < 0)) {
+            curr = curr.parent;
+        }
+
+        while (true) {
+            if (key.compareTo(curr.key) < 0) {
+                if (curr.left == null) {
+                    curr.left = node;
+                    break;
+                } else { curr = curr.left; }
+            } else {
+                if (curr.right == null) {
+                    curr.right = node;
+                    break;
+                } else { curr = curr.right; }
+            }
+        }
+        node.parent = curr;
+        rebalance(curr);
+        return node;
+    }
+
+    public DAFNode<K, D> insertDuplicate(K key, int nCopy) {
+        if (key == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        DAFNode<K, D> curr = this.root;
+        while (curr != null) {
+            int compared = key.compareTo(curr.key);
+
+            // key in table
+            if (compared == 0) {
+                addCopies(curr, nCopy);
+                this.nElems += nCopy;
+                break; }
+            else if (compared < 0) { curr = curr.left; }
+            else { curr = curr.right; }
+        }
+        return curr;
+    }
+
+    public DAFNode<K, D> lookup(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        DAFNode<K, D> curr = this.root;
+        int depth = 0;
+        while (curr != null) {
+            depth++;
+            int compared = key.compareTo(curr.key);
+
+            if (compared == 0) { break; }
+            else if (compared < 0) { curr = curr.left; }
+            else { curr = curr.right; }
+        }
+        if (Metrics.ENABLED) { Metrics.TREE.recordSearch(depth); }
+        return curr;
+    }
+
+    public DAFNode<K, D> updateData(K key, D newData) {
+        if (key == null || newData == null) { throw new NullPointerException(); }
+
+        DAFNode<K, D> curr = this.root;
+        while (curr != null) {
+            int compared = key.compareTo(curr.key);
+
+            if (compared == 0) {
+                curr.data = newData;
+                break; }
+            else if (compared < 0) { curr = curr.left; }
+            else { curr = curr.right; }
+        }
+        return curr;
+    }
+
+    public DAFNode<K, D> remove(K key, int nCopy) {
+        if (key == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        // node not in tree
+        DAFNode<K, D> node = lookup(key);
+        if (node == null) { return null; }
+        return removeNode(node, nCopy);
+    }
+
+    /* ASSUMES NODE IS IN TREE. removes copies without searching, unlinking the node once none are left */
+    public DAFNode<K, D> removeNode(DAFNode<K, D> node, int nCopy) {
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        // if node will remain, update count. otherwise, node will need to be removed
+        if (nCopy < node.count) {
+            addCopies(node, -nCopy);
+            this.nElems -= nCopy;
+            return node;
+        }
+        return unlink(node);
+    }
+
+    /* ASSUMES NODE IS IN TREE. adds copies without searching */
+    public void addCount(DAFNode<K, D> node, int nCopy) {
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        addCopies(node, nCopy);
+        this.nElems += nCopy;
+    }
+
+    /* ASSUMES NODE IS IN TREE */
+    public DAFNode<K, D> removeAll(K key) {
+        return unlink(lookup(key));
+    }
+
+    // detaches node from the tree, then rebalances from the lowest node whose subtree changed
+    private DAFNode<K, D> unlink(DAFNode<K, D> node) {
+        DAFNode<K, D> fixFrom;
+
+        // node has at most one child
+        if (node.left == null || node.right == null) {
+            fixFrom = node.parent;
+            attachParent(node, node.left != null ? node.left : node.right);
+        }
+        // node has 2 children, replace it with its successor
+        else {
+            DAFNode<K, D> curr = node.right;
+
+            // first right child doesn't have a left child
+            if (curr.left == null) { fixFrom = curr; }
+            else {
+                while (curr.left != null) { curr = curr.left; }
+                fixFrom = curr.parent;
+
+                attachParent(curr, curr.right);
+                curr.right = node.right;
+                curr.right.parent = curr;
+            }
+            attachParent(node, curr);
+            curr.left = node.left;
+            curr.left.parent = curr;
+        }
+        rebalance(fixFrom);
+
+        this.nUnique -= 1;
+        this.nElems -= node.count;
+        node.count = 0;
+        node.left = node.right = node.parent = null;
+        return node;
+    }
+
+    private void attachParent(DAFNode<K, D> node, DAFNode<K, D> child) {
+        if (node.parent == null) {
+            this.root = child;
+            if (child != null) { child.parent = null; }
+        } else {
+            if (node.parent.left == node) { node.parent.left = child; }
+            else { node.parent.right = child; }
+
+            if (child != null) { child.parent = node.parent; }
+        }
+    }
+
+    private static int height(DAFTree.DAFNode node) { return node == null ? 0 : node.height; }
+
+    private static int size(DAFTree.DAFNode node) { return node == null ? 0 : node.size; }
+
+    private static int total(DAFTree.DAFNode node) { return node == null ? 0 : node.total; }
+
+    // recomputes the node's height and subtree aggregates from its children
+    private void refresh(DAFNode<K, D> node) {
+        node.height = 1 + Math.max(height(node.left), height(node.right));
+        node.size = 1 + size(node.left) + size(node.right);
+        node.total = node.count + total(node.left) + total(node.right);
+    }
+
+    // changes the node's count and the copy totals of every subtree holding it
+    private void addCopies(DAFNode<K, D> node, int nCopy) {
+        node.count += nCopy;
+        for (DAFNode<K, D> curr = node; curr != null; curr = curr.parent) { curr.total += nCopy; }
+    }
+
+    // walks up to the root fixing heights and aggregates, rotating any node left out of AVL balance
+    private void rebalance(DAFNode<K, D> curr) {
+        while (curr != null) {
+            refresh(curr);
+            if (this.balanced) {
+                int balance = height(curr.left) - height(curr.right);
+                if (balance > 1) {
+                    if (height(curr.left.left) < height(curr.left.right)) { rotateLeft(curr.left); }
+                    curr = rotateRight(curr);
+                } else if (balance < -1) {
+                    if (height(curr.right.right) < height(curr.right.left)) { rotateRight(curr.right); }
+                    curr = rotateLeft(curr);
+                }
+            }
+            curr = curr.parent;
+        }
+        if (Metrics.ENABLED) { Metrics.TREE.recordHeight(height(this.root)); }
+    }
+
+    // returns the node that took the rotated node's place
+    private DAFNode<K, D> rotateLeft(DAFNode<K, D> node) {
+        if (Metrics.ENABLED) { Metrics.TREE.recordRotation(); }
+        DAFNode<K, D> pivot = node.right;
+        node.right = pivot.left;
+        if (pivot.left != null) { pivot.left.parent = node; }
+        attachParent(node, pivot);
+        pivot.left = node;
+        node.parent = pivot;
+
+        refresh(node);
+        refresh(pivot);
+        return pivot;
+    }
+
+    private DAFNode<K, D> rotateRight(DAFNode<K, D> node) {
+        if (Metrics.ENABLED) { Metrics.TREE.recordRotation(); }
+        DAFNode<K, D> pivot = node.left;
+        node.left = pivot.right;
+        if (pivot.right != null) { pivot.right.parent = node; }
+        attachParent(node, pivot);
+        pivot.right = node;
+        node.parent = pivot;
+
+        refresh(node);
+        refresh(pivot);
+        return pivot;
+    }
+
+    public int height() { return height(this.root); }
+
+    /* replaces the contents with a perfectly balanced tree of the n strictly ascending keys, in O(n).
+       returns the new nodes in key order */
+    @SuppressWarnings("unchecked")
+    public DAFNode<K, D>[] buildBalanced(K[] keys, D[] data, int[] counts, int n) {
+        DAFNode<K, D>[] nodes = new DAFNode[n];
+        this.nElems = 0;
+        for (int i = 0; i < n; i++) {
+            nodes[i] = new DAFNode(keys[i], data[i], counts[i]);
+            this.nElems += counts[i];
+        }
+        this.nUnique = n;
+        this.root = link(nodes, 0, n - 1, null);
+        return nodes;
+    }
+
+    // links the middle node as the subtree root over nodes[lo..hi], filling in heights and aggregates bottom-up
+    private DAFNode<K, D> link(DAFNode<K, D>[] nodes, int lo, int hi, DAFNode<K, D> parent) {
+        if (lo > hi) { return null; }
+
+        int mid = (lo + hi) >>> 1;
+        DAFNode<K, D> node = nodes[mid];
+        node.parent = parent;
+        node.left = link(nodes, lo, mid - 1, node);
+        node.right = link(nodes, mid + 1, hi, node);
+        refresh(node);
+        return node;
+    }
+
+    // number of copies of keys less than the given key, or at most the key if inclusive
+    private int countBelow(K key, boolean inclusive) {
+        int below = 0;
+        DAFNode<K, D> curr = this.root;
+        while (curr != null) {
+            int compared = key.compareTo(curr.key);
+
+            if (compared < 0 || (compared == 0 && !inclusive)) { curr = curr.left; }
+            else {
+                below += total(curr.left) + curr.count;
+                if (compared == 0) { break; }
+                curr = curr.right;
+            }
+        }
+        return below;
+    }
+
+    /* number of copies of keys less than the given key */
+    public int rank(K key) {
+        if (key == null) { throw new NullPointerException(); }
+        return countBelow(key, false);
+    }
+
+    /* node holding the copy at the given 0-based position of the sorted multiset */
+    public DAFNode<K, D> select(int index) {
+        if (index < 0 || index >= this.nElems) { throw new IndexOutOfBoundsException(); }
+
+        DAFNode<K, D> curr = this.root;
+        while (true) {
+            int leftTotal = total(curr.left);
+            if (index < leftTotal) { curr = curr.left; }
+            else if (index < leftTotal + curr.count) { return curr; }
+            else {
+                index -= leftTotal + curr.count;
+                curr = curr.right;
+            }
+        }
+    }
+
+    /* number of copies of keys strictly between lower and upper */
+    public int countInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+        return Math.max(0, countBelow(upper, false) - countBelow(lower, true));
+    }
+
+    public DAFNode<K, D> getRoot() { return this.root; }
+
+    public DAFNode<K, D> findExtreme(boolean isMax) {
+        if (this.root == null) { return null; }
+
+        DAFNode<K, D> curr = this.root;
+        if (isMax) {
+            while (curr.right != null) { curr = curr.right; }
+        } else {
+            while (curr.left != null) { curr = curr.left; }
+        }
+        return curr;
+    }
+
+    /* yields every copy of every key. walks each node once and repeats its key count times, so memory stays
+       O(height) however many copies a key has */
+    public class DAFTreeIterator implements Iterator<K> {
+
+        DAFTreeUniqueIterator nodes;
+        K current;
+        int copiesLeft; // copies of current still to yield
+
+        public DAFTreeIterator() {
+            this.nodes = new DAFTreeUniqueIterator();
+            this.copiesLeft = 0;
+        }
+
+        public boolean hasNext() { return this.copiesLeft > 0 || this.nodes.hasNext(); }
+
+        public K next() {
+            // NSEE thrown by the node iterator once every copy is used up
+            if (this.copiesLeft == 0) {
+                DAFNode<K, D> node = this.nodes.nextNode();
+                this.current = node.key;
+                this.copiesLeft = node.count;
+            }
+            this.copiesLeft--;
+            return this.current;
+        }
+    }
+
+    public Iterator<K> iterator() { return new DAFTreeIterator(); }
+
+    public Iterator<K> uniqueIterator() { return new DAFTreeUniqueIterator(); }
+
+    /* every copy of every key, in order. splits on subtrees, so parallel streams divide the work by size */
+    @Override
+    public Spliterator<K> spliterator() {
+        return this.nodeSpliterator(true, node -> node.key, Spliterator.SORTED | Spliterator.NONNULL);
+    }
+
+    public Spliterator<K> uniqueSpliterator() {
+        return this.nodeSpliterator(false, node -> node.key,
+                Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    /* maps each node, or each copy of each node when allowDuplicate, in key order. the result is ORDERED,
+       SIZED and SUBSIZED on top of the given characteristics */
+    public <T> Spliterator<T> nodeSpliterator(boolean allowDuplicate, Function<DAFNode<K, D>, T> mapper,
+                                              int characteristics) {
+        return new DAFTreeSpliterator<>(this.root, allowDuplicate, mapper, characteristics);
+    }
+
+    public class DAFTreeUniqueIterator implements Iterator<K> {
+
+        Stack<DAFNode<K, D>> stack;
+
+        public DAFTreeUniqueIterator() {
+            this.stack = new Stack();
+            addLeftPath(getRoot());
+        }
+
+        public boolean hasNext() { return !this.stack.isEmpty(); }
+
+        public K next() { return nextNode().key; }
+
+        public DAFNode<K, D> nextNode() {
+            DAFNode<K, D> popped;
+            if (!hasNext()) { throw new NoSuchElementException(); }
+            else {
+                popped = this.stack.pop();
+                // adds left path of right child if applicable
+                addLeftPath(popped.right);
+            }
+            return popped;
+        }
+
+        private void addLeftPath(DAFNode<K, D> curr) {
+            // robust even if the given root is null
+            while (curr != null) {
+                this.stack.push(curr);
+                curr = curr.left;
+            }
+        }
+    }
+
+    /*
+     * Covers an in-order run of the tree as a queue of pieces, each either a whole subtree or a single node.
+     * The subtree aggregates give the exact size of every piece, so the spliterator is SIZED and SUBSIZED.
+     * trySplit hands off the front pieces holding about half of the elements, expanding a whole subtree into
+     * its left subtree, root and right subtree where it straddles the midpoint, so a split costs O(height).
+     */
+    public class DAFTreeSpliterator<T> implements Spliterator<T> {
+
+        // a whole subtree, or a single node with copies left to emit
+        private class Piece {
+            final DAFNode<K, D> node;
+            final boolean whole;
+            int copies;
+
+            Piece(DAFNode<K, D> node, boolean whole) {
+                this.node = node;
+                this.whole = whole;
+                this.copies = allowDuplicate ? node.count : 1;
+            }
+
+            long size() {
+                if (!this.whole) { return this.copies; }
+                return allowDuplicate ? this.node.total : this.node.size;
+            }
+        }
+
+        final boolean allowDuplicate;
+        final Function<DAFNode<K, D>, T> mapper;
+        final int characteristics;
+        ArrayDeque<Piece> pieces;
+        long remaining;
+
+        public DAFTreeSpliterator(DAFNode<K, D> root, boolean allowDuplicate, Function<DAFNode<K, D>, T> mapper,
+                                  int characteristics) {
+            this.allowDuplicate = allowDuplicate;
+            this.mapper = mapper;
+            this.characteristics = characteristics | Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+            this.pieces = new ArrayDeque<>();
+            this.remaining = 0;
+            if (root != null) { this.add(new Piece(root, true)); }
+        }
+
+        private DAFTreeSpliterator(DAFTreeSpliterator<T> parent) {
+            this.allowDuplicate = parent.allowDuplicate;
+            this.mapper = parent.mapper;
+            this.characteristics = parent.characteristics;
+            this.pieces = new ArrayDeque<>();
+            this.remaining = 0;
+        }
+
+        private void add(Piece piece) {
+            this.pieces.addLast(piece);
+            this.remaining += piece.size();
+        }
+
+        // replaces the whole subtree at the front with its left subtree, root and right subtree
+        private void expandFirst() {
+            DAFNode<K, D> node = this.pieces.pollFirst().node;
+            if (node.right != null) { this.pieces.addFirst(new Piece(node.right, true)); }
+            this.pieces.addFirst(new Piece(node, false));
+            if (node.left != null) { this.pieces.addFirst(new Piece(node.left, true)); }
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) { throw new NullPointerException(); }
+
+            while (!this.pieces.isEmpty() && this.pieces.peekFirst().whole) { this.expandFirst(); }
+            if (this.pieces.isEmpty()) { return false; }
+
+            Piece first = this.pieces.peekFirst();
+            if (--first.copies == 0) { this.pieces.pollFirst(); }
+            this.remaining--;
+            action.accept(this.mapper.apply(first.node));
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) { throw new NullPointerException(); }
+
+            while (!this.pieces.isEmpty()) {
+                Piece first = this.pieces.pollFirst();
+                if (first.whole) { this.walk(first.node, action); }
+                else {
+                    T mapped = this.mapper.apply(first.node);
+                    while (first.copies-- > 0) { action.accept(mapped); }
+                }
+            }
+            this.remaining = 0;
+        }
+
+        // in-order walk of a whole subtree without allocating pieces. iterative, as unbalanced trees can be deep
+        private void walk(DAFNode<K, D> node, Consumer<? super T> action) {
+            ArrayDeque<DAFNode<K, D>> stack = new ArrayDeque<>();
+            while (node != null || !stack.isEmpty()) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                T mapped = this.mapper.apply(node);
+                for (int copies = this.allowDuplicate ? node.count : 1; copies > 0; copies--) {
+                    action.accept(mapped);
+                }
+                node = node.right;
+            }
+        }
+
+        public Spliterator<T> trySplit() {
+            // moves front pieces to the prefix up to about half of the elements, opening up the subtree that
+            // straddles the midpoint until only a single node does
+            DAFTreeSpliterator<T> prefix = new DAFTreeSpliterator<>(this);
+            long half = this.remaining / 2;
+            while (!this.pieces.isEmpty()) {
+                Piece next = this.pieces.peekFirst();
+                if (prefix.remaining + next.size() <= half) { prefix.add(this.pieces.pollFirst()); }
+                else if (next.whole) { this.expandFirst(); }
+                else { break; }
+            }
+            // a node with more copies than half the elements goes to the prefix on its own
+            if (prefix.pieces.isEmpty() && this.pieces.size() > 1) { prefix.add(this.pieces.pollFirst()); }
+            if (prefix.pieces.isEmpty()) { return null; }
+
+            this.remaining -= prefix.remaining;
+            return prefix;
+        }
+
+        public long estimateSize() { return this.remaining; }
+
+        public int characteristics() { return this.characteristics; }
+
+        public Comparator<? super T> getComparator() {
+            if ((this.characteristics & Spliterator.SORTED) != 0) { return null; }
+            throw new IllegalStateException();
+        }
+    }
+
+    /* keys between the bounds in ascending or descending order. a null bound leaves that side open */
+    public Iterator<K> rangeIterator(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                     boolean descending) {
+        return new DAFTreeRangeIterator(lower, lowerInclusive, upper, upperInclusive, descending);
+    }
+
+    public class DAFTreeRangeIterator implements Iterator<K> {
+
+        ArrayDeque<DAFNode<K, D>> stack;
+        K start, end; // bounds in iteration order
+        boolean startInclusive, endInclusive;
+        int direction; // 1 when ascending, -1 when descending
+
+        public DAFTreeRangeIterator(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                    boolean descending) {
+            this.stack = new ArrayDeque<>();
+            this.direction = descending ? -1 : 1;
+            this.start = descending ? upper : lower;
+            this.startInclusive = descending ? upperInclusive : lowerInclusive;
+            this.end = descending ? lower : upper;
+            this.endInclusive = descending ? lowerInclusive : upperInclusive;
+
+            // descends straight to the start bound, stacking every node on the way that is past it
+            DAFNode<K, D> curr = getRoot();
+            while (curr != null) {
+                if (afterStart(curr.key)) {
+                    this.stack.push(curr);
+                    curr = toward(curr, true);
+                } else { curr = toward(curr, false); }
+            }
+        }
+
+        public boolean hasNext() { return !this.stack.isEmpty() && beforeEnd(this.stack.peek().key); }
+
+        public K next() {
+            if (!hasNext()) { throw new NoSuchElementException(); }
+
+            DAFNode<K, D> popped = this.stack.pop();
+            // adds the path toward the start of the subtree after the popped node
+            DAFNode<K, D> curr = toward(popped, false);
+            while (curr != null) {
+                this.stack.push(curr);
+                curr = toward(curr, true);
+            }
+            return popped.key;
+        }
+
+        // child toward the start of the iteration when back is true, otherwise toward the end
+        private DAFNode<K, D> toward(DAFNode<K, D> node, boolean back) {
+            return (this.direction > 0) == back ? node.left : node.right;
+        }
+
+        private boolean afterStart(K key) {
+            if (this.start == null) { return true; }
+            int compared = key.compareTo(this.start) * this.direction;
+            return compared > 0 || (compared == 0 && this.startInclusive);
+        }
+
+        private boolean beforeEnd(K key) {
+            if (this.end == null) { return true; }
+            int compared = key.compareTo(this.end) * this.direction;
+            return compared < 0 || (compared == 0 && this.endInclusive);
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+package fadaf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/*
+ * FADAF that survives restarts. Every successful insert, remove, removeAll and update is appended to a Journal
+ * before it is applied in memory, and only returns once the journal has fsynced it, with concurrent writers
+ * sharing fsyncs. A change that cannot be encoded or appended is never applied. A change that was appended but
+ * not fsynced may already be visible to other threads, so after a failed fsync every operation throws and the
+ * store must be reopened, which restores only what reached the disk. checkpoint() writes a snapshot
+ * named after the last lsn it covers and deletes the journal segments it makes redundant. Opening a directory
+ * restores the newest snapshot and replays the journal after it.
+ */
+public class DurableFADAF<K extends Comparable<? super K>, D> implements Closeable {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 1 << 20;
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private static final byte INSERT = 1, REMOVE = 2, REMOVE_ALL = 3, UPDATE = 4;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path dir;
+    private final Codec<K> keyCodec;
+    private final Codec<D> dataCodec;
+    private final Journal journal;
+    private final FADAF<K, D> fadaf; // guarded by this
+    private ByteBuffer record; // guarded by this, reused to encode each journal record
+    private IOException failure; // guarded by this, set once a change could not be made durable
+
+    private DurableFADAF(Path dir, Codec<K> keyCodec, Codec<D> dataCodec, FADAF<K, D> fadaf, Journal journal) {
+        this.dir = dir;
+        this.keyCodec = keyCodec;
+        this.dataCodec = dataCodec;
+        this.fadaf = fadaf;
+        this.journal = journal;
+        this.record = ByteBuffer.allocate(256);
+    }
+
+    public static <K extends Comparable<? super K>, D> DurableFADAF<K, D> open(Path dir, Codec<K> keyCodec,
+                                                                               Codec<D> dataCodec) throws IOException {
+        return open(dir, keyCodec, dataCodec, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_MAX_BATCH_BYTES,
+                DEFAULT_SEGMENT_BYTES);
+    }
+
+    /* opens or creates the store in dir. a batch is fsynced once it holds maxBatchBytes or has waited
+       flushIntervalMillis, and the journal moves to a new segment file after segmentBytes */
+    public static <K extends Comparable<? super K>, D> DurableFADAF<K, D> open(Path dir, Codec<K> keyCodec,
+            Codec<D> dataCodec, long flushIntervalMillis, int maxBatchBytes, long segmentBytes) throws IOException {
+        Files.createDirectories(dir);
+        TreeMap<Long, Path> snapshots = listSnapshots(dir);
+
+        long snapshotLsn = 0;
+        FADAF<K, D> fadaf = new FADAF<>(10);
+        if (!snapshots.isEmpty()) {
+            snapshotLsn = snapshots.lastKey();
+            fadaf = FADAF.open(snapshots.lastEntry().getValue(), keyCodec, dataCodec);
+        }
+
+        Journal journal = new Journal(dir, flushIntervalMillis, maxBatchBytes, segmentBytes);
+        DurableFADAF<K, D> durable = new DurableFADAF<>(dir, keyCodec, dataCodec, fadaf, journal);
+        try {
+            journal.replay(snapshotLsn, (lsn, payload) -> durable.apply(payload));
+        } catch (IOException | RuntimeException e) {
+            journal.close();
+            throw e;
+        }
+        journal.advanceTo(snapshotLsn);
+        return durable;
+    }
+
+    public synchronized int size() {
+        this.checkFailed();
+        return this.fadaf.size();
+    }
+
+    public synchronized int nUniqueKeys() {
+        this.checkFailed();
+        return this.fadaf.nUniqueKeys();
+    }
+
+    public synchronized int lookup(K key) {
+        this.checkFailed();
+        return this.fadaf.lookup(key);
+    }
+
+    // copies the keys, as the duplicate view FADAF returns would otherwise be read outside the lock
+    public synchronized List<K> getAllKeys(boolean allowDuplicate) {
+        this.checkFailed();
+        return new ArrayList<>(this.fadaf.getAllKeys(allowDuplicate));
+    }
+
+    public synchronized List<K> getUniqueKeysInRange(K lower, K upper) {
+        this.checkFailed();
+        return this.fadaf.getUniqueKeysInRange(lower, upper);
+    }
+
+    public synchronized K getMinKey() {
+        this.checkFailed();
+        return this.fadaf.getMinKey();
+    }
+
+    public synchronized K getMaxKey() {
+        this.checkFailed();
+        return this.fadaf.getMaxKey();
+    }
+
+    public boolean insert(K key, D data, int nCopy) throws IOException {
+        long lsn;
+        boolean inserted;
+        synchronized (this) {
+            this.checkWritable();
+            if (key == null || data == null) { throw new NullPointerException(); }
+            if (nCopy < 1) { throw new IllegalArgumentException(); }
+            lsn = this.log(INSERT, key, nCopy, data);
+            inserted = this.fadaf.insert(key, data, nCopy);
+        }
+        this.awaitDurable(lsn);
+        return inserted;
+    }
+
+    public boolean remove(K key, int nCopy) throws IOException {
+        long lsn;
+        synchronized (this) {
+            this.checkWritable();
+            if (nCopy < 1) { throw new IllegalArgumentException(); }
+            if (this.fadaf.lookup(key) == 0) { return false; }
+            lsn = this.log(REMOVE, key, nCopy, null);
+            this.fadaf.remove(key, nCopy);
+        }
+        this.awaitDurable(lsn);
+        return true;
+    }
+
+    public boolean removeAll(K key) throws IOException {
+        long lsn;
+        synchronized (this) {
+            this.checkWritable();
+            if (this.fadaf.lookup(key) == 0) { return false; }
+            lsn = this.log(REMOVE_ALL, key, 0, null);
+            this.fadaf.removeAll(key);
+        }
+        this.awaitDurable(lsn);
+        return true;
+    }
+
+    public boolean update(K key, D newData) throws IOException {
+        long lsn;
+        synchronized (this) {
+            this.checkWritable();
+            if (newData == null) { throw new NullPointerException(); }
+            if (this.fadaf.lookup(key) == 0) { return false; }
+            lsn = this.log(UPDATE, key, 0, newData);
+            this.fadaf.update(key, newData);
+        }
+        this.awaitDurable(lsn);
+        return true;
+    }
+
+    /* snapshots the current state, then drops the snapshots and journal segments it supersedes */
+    public synchronized void checkpoint() throws IOException {
+        this.checkWritable();
+        long lsn = this.journal.lastLsn();
+        this.awaitDurable(lsn);
+
+        Path snapshot = this.dir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+        this.fadaf.snapshot(snapshot, this.keyCodec, this.dataCodec);
+
+        this.journal.rotate();
+        this.journal.truncateThrough(lsn);
+        for (Path old : listSnapshots(this.dir).headMap(lsn).values()) { Files.deleteIfExists(old); }
+    }
+
+    @Override
+    public void close() throws IOException { this.journal.close(); }
+
+    // a change up to lsn is already in memory, so a failed fsync fails the whole store rather than this call
+    private void awaitDurable(long lsn) throws IOException {
+        try {
+            this.journal.awaitDurable(lsn);
+        } catch (IOException e) {
+            synchronized (this) { if (this.failure == null) { this.failure = e; } }
+            throw e;
+        }
+    }
+
+    private void checkWritable() throws IOException {
+        if (this.failure != null) { throw new IOException("journal failed, reopen the store", this.failure); }
+    }
+
+    private void checkFailed() {
+        if (this.failure != null) {
+            throw new IllegalStateException("journal failed, reopen the store", this.failure);
+        }
+    }
+
+    private static TreeMap<Long, Path> listSnapshots(Path dir) throws IOException {
+        TreeMap<Long, Path> snapshots = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                    String lsn = name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length());
+                    snapshots.put(Long.parseLong(lsn), file);
+                }
+            });
+        }
+        return snapshots;
+    }
+
+    // appends the change before it is applied, so a codec or journal failure leaves memory untouched.
+    // record layout: op byte, keyLen int, key, nCopy int, dataLen int, data. data is absent for removes
+    private long log(byte op, K key, int nCopy, D data) throws IOException {
+        int keyLen = this.keyCodec.size(key);
+        int dataLen = data == null ? 0 : this.dataCodec.size(data);
+        int length = 1 + 3 * Integer.BYTES + keyLen + dataLen;
+        if (this.record.capacity() < length) { this.record = ByteBuffer.allocate(Math.max(length, this.record.capacity() * 2)); }
+
+        this.record.clear();
+        this.record.put(op).putInt(keyLen);
+        this.keyCodec.write(key, this.record);
+        this.record.putInt(nCopy).putInt(dataLen);
+        if (data != null) { this.dataCodec.write(data, this.record); }
+        return this.journal.append(this.record.flip());
+    }
+
+    private synchronized void apply(ByteBuffer payload) {
+        byte op = payload.get();
+        int keyLen = payload.getInt();
+        K key = this.keyCodec.read(payload, keyLen);
+        int nCopy = payload.getInt();
+        int dataLen = payload.getInt();
+        D data = dataLen == 0 && op != INSERT && op != UPDATE ? null : this.dataCodec.read(payload, dataLen);
+
+        switch (op) {
+            case INSERT: this.fadaf.insert(key, data, nCopy); break;
+            case REMOVE: this.fadaf.remove(key, nCopy); break;
+            case REMOVE_ALL: this.fadaf.removeAll(key); break;
+            case UPDATE: this.fadaf.update(key, data); break;
+            default: throw new IllegalStateException("unknown journal op " + op);
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package fadaf;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DurableFADAFTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    Path dir;
+    DurableFADAF<String, Double> fadaf1;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.getRoot().toPath().resolve("store");
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+
+        assertTrue(fadaf1.insert("String", 0.6, 1));
+        assertTrue(fadaf1.insert("STRING", -10.2, 2));
+        assertTrue(fadaf1.insert("ST", -20.202, 4));
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 220.0, 2));
+        assertTrue(fadaf1.remove("SS", 1));
+        assertFalse(fadaf1.remove("XX", 1));
+        assertTrue(fadaf1.update("ST", 20.202));
+        assertTrue(fadaf1.removeAll("String"));
+        assertFalse(fadaf1.removeAll("String"));
+    }
+
+    @After
+    public void tearDown() throws IOException { fadaf1.close(); }
+
+    @Test
+    public void testRecoverFromJournal() throws IOException {
+        fadaf1.close();
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+
+        assertEquals(Arrays.asList("SS", "ST", "ST", "ST", "ST", "ST", "STRING", "STRING"), fadaf1.getAllKeys(true));
+        assertEquals(0, fadaf1.lookup("String"));
+        assertTrue(fadaf1.insert("String", 1.0, 3));
+    }
+
+    @Test
+    public void testRecoverFromCheckpointAndJournal() throws IOException {
+        fadaf1.checkpoint();
+        assertEquals(0, countFiles("journal-"));
+        assertEquals(1, countFiles("snapshot-"));
+
+        assertTrue(fadaf1.insert("AA", 1.0, 5));
+        assertTrue(fadaf1.remove("ST", 5));
+        fadaf1.close();
+
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+        assertEquals(Arrays.asList("AA", "SS", "STRING"), fadaf1.getAllKeys(false));
+        assertEquals(5, fadaf1.lookup("AA"));
+        assertEquals(8, fadaf1.size());
+
+        // a second checkpoint replaces the first and removes the segments it covers
+        fadaf1.checkpoint();
+        assertTrue(fadaf1.insert("BB", 1.0, 1));
+        fadaf1.checkpoint();
+        assertEquals(1, countFiles("snapshot-"));
+        assertEquals(0, countFiles("journal-"));
+        fadaf1.close();
+
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+        assertEquals(Arrays.asList("AA", "BB", "SS", "STRING"), fadaf1.getAllKeys(false));
+        assertTrue(fadaf1.insert("CC", 1.0, 1));
+        fadaf1.close();
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+        assertEquals(1, fadaf1.lookup("CC"));
+    }
+
+    @Test
+    public void testTornTailIsDropped() throws IOException {
+        fadaf1.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(f -> f.getFileName().toString().startsWith("journal-")).findFirst().get();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 1, 2, 3}));
+        }
+
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+        assertEquals(8, fadaf1.size());
+        assertTrue(fadaf1.insert("AA", 1.0, 1));
+        fadaf1.close();
+
+        fadaf1 = DurableFADAF.open(dir, Codec.STRING, Codec.DOUBLE);
+        assertEquals(9, fadaf1.size());
+    }
+
+    @Test
+    public void testConcurrentWritersShareSegments() throws Exception {
+        DurableFADAF<Integer, Integer> fadaf = DurableFADAF.open(dir.resolveSibling("ints"), Codec.INTEGER,
+                Codec.INTEGER, 1, 4096, 8192);
+        Thread[] writers = new Thread[8];
+        for (int t = 0; t < writers.length; t++) {
+            int offset = t;
+            writers[t] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 500; i++) { fadaf.insert(i * writers.length + offset, i, 1); }
+                } catch (IOException e) { throw new IllegalStateException(e); }
+            });
+            writers[t].start();
+        }
+        for (Thread writer : writers) { writer.join(); }
+        fadaf.close();
+
+        DurableFADAF<Integer, Integer> reopened = DurableFADAF.open(dir.resolveSibling("ints"), Codec.INTEGER,
+                Codec.INTEGER);
+        assertEquals(4000, reopened.size());
+        assertEquals(Integer.valueOf(3999), reopened.getMaxKey());
+        reopened.close();
+    }
+
+    @Test
+    public void testFailedLogLeavesMemoryUntouched() throws IOException {
+        Codec<String> failing = new Codec<String>() {
+            public int size(String value) { return Codec.STRING.size(value); }
+
+            public void write(String value, ByteBuffer out) {
+                if (value.equals("bad")) { throw new IllegalStateException("cannot encode"); }
+                Codec.STRING.write(value, out);
+            }
+
+            public String read(ByteBuffer in, int length) { return Codec.STRING.read(in, length); }
+        };
+        DurableFADAF<String, Double> fadaf = DurableFADAF.open(dir.resolveSibling("failing"), failing, Codec.DOUBLE);
+        assertTrue(fadaf.insert("good", 1.0, 2));
+        try {
+            fadaf.insert("bad", 1.0, 1);
+            fail();
+        } catch (IllegalStateException e) { /* expected */ }
+        assertEquals(0, fadaf.lookup("bad"));
+        assertEquals(2, fadaf.size());
+
+        // a closed journal refuses the append, so none of these may reach memory
+        fadaf.close();
+        assertFalse(tryOp(() -> fadaf.insert("good", 2.0, 1)));
+        assertFalse(tryOp(() -> fadaf.remove("good", 1)));
+        assertFalse(tryOp(() -> fadaf.removeAll("good")));
+        assertFalse(tryOp(() -> fadaf.update("good", 2.0)));
+        assertEquals(2, fadaf.lookup("good"));
+        assertEquals(Arrays.asList("good", "good"), fadaf.getAllKeys(true));
+
+        DurableFADAF<String, Double> reopened = DurableFADAF.open(dir.resolveSibling("failing"), failing,
+                Codec.DOUBLE);
+        assertEquals(Arrays.asList("good", "good"), reopened.getAllKeys(true));
+        reopened.close();
+    }
+
+    @Test
+    public void testFailedFsyncFailsTheStore() throws IOException {
+        // one segment per batch, so the next batch has to create a file
+        Path failing = dir.resolveSibling("fsync");
+        DurableFADAF<String, Double> fadaf = DurableFADAF.open(failing, Codec.STRING, Codec.DOUBLE, 0, 1 << 10, 1);
+        assertTrue(fadaf.insert("durable", 1.0, 1));
+
+        try (Stream<Path> files = Files.list(failing)) {
+            for (Path file : (Iterable<Path>) files::iterator) { Files.delete(file); }
+        }
+        Files.delete(failing);
+        Files.createFile(failing);
+
+        // the insert reached memory before its fsync failed, so nothing may read it any more
+        assertFalse(tryOp(() -> fadaf.insert("lost", 1.0, 1)));
+        assertFalse(tryOp(() -> fadaf.remove("durable", 1)));
+        try {
+            fadaf.lookup("lost");
+            fail();
+        } catch (IllegalStateException e) { /* expected */ }
+        try {
+            fadaf.checkpoint();
+            fail();
+        } catch (IOException e) { /* expected */ }
+        assertFalse(tryOp(() -> { fadaf.close(); return true; }));
+    }
+
+    private interface Op { boolean run() throws IOException; }
+
+    // false if the op threw an IOException
+    private static boolean tryOp(Op op) {
+        try {
+            op.run();
+            return true;
+        } catch (IOException e) { return false; }
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+}
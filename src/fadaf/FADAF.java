@@ -0,0 +1,428 @@
+package fadaf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@SuppressWarnings("rawtypes")
+public class FADAF<K extends Comparable<? super K>, D> implements FADAFOperations<K, D> {
+
+    private NodeIndex<K, D> index; // hashes the tree's own nodes, so each key costs one node
+    private DAFTree<K, D> tree;
+    // unique keys from most to least frequent, built by the first topK call and maintained from then on
+    private TreeSet<DAFTree<K, D>.DAFNode<K, D>> byCount;
+
+    /* a unique key with its data and number of copies, as they were when the entry was produced */
+    public static final class Entry<K, D> {
+        private final K key;
+        private final D data;
+        private final int count;
+
+        Entry(K key, D data, int count) {
+            this.key = key;
+            this.data = data;
+            this.count = count;
+        }
+
+        public K getKey() { return this.key; }
+
+        public D getData() { return this.data; }
+
+        public int getCount() { return this.count; }
+
+        @Override
+        public String toString() { return this.key + "=" + this.data + " x" + this.count; }
+    }
+
+    public FADAF(int capacity) {
+        this.index = new NodeIndex<>(capacity);
+        this.tree = new DAFTree<>(true);
+    }
+
+    private static final int MIN_CAPACITY = 10;
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 13;
+    private static final int PARALLEL_LOOKUP_THRESHOLD = 1 << 14;
+
+    // one key of a batch being bulk loaded or inserted
+    private static class BatchEntry<K, D> {
+        K key;
+        D data;
+        int count;
+        int position; // index in the caller's arrays
+
+        BatchEntry(K key, D data, int count) {
+            this.key = key;
+            this.data = data;
+            this.count = count;
+        }
+    }
+
+    public static <K extends Comparable<? super K>, D> FADAF<K, D> bulkLoad(K[] keys, D[] data) {
+        int[] counts = new int[keys.length];
+        Arrays.fill(counts, 1);
+        return bulkLoad(keys, data, counts);
+    }
+
+    /* builds a FADAF from parallel key/data/count arrays in any order. duplicate keys are merged into one
+       count, keeping the data of their first occurrence like insert does. the tree is built balanced in one
+       pass and the index is sized so it never grows during the load */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, D> FADAF<K, D> bulkLoad(K[] keys, D[] data, int[] counts) {
+        if (keys.length != data.length || keys.length != counts.length) { throw new IllegalArgumentException(); }
+
+        int n = keys.length;
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null || data[i] == null) { throw new NullPointerException(); }
+            if (counts[i] < 1) { throw new IllegalArgumentException(); }
+            if (i > 0 && keys[i - 1].compareTo(keys[i]) > 0) { sorted = false; }
+        }
+
+        K[] sortedKeys = keys;
+        D[] sortedData = data;
+        int[] sortedCounts = counts;
+        if (!sorted) {
+            // stable sort, so the first occurrence of a duplicate stays first
+            BatchEntry<K, D>[] batch = new BatchEntry[n];
+            for (int i = 0; i < n; i++) { batch[i] = new BatchEntry<>(keys[i], data[i], counts[i]); }
+            Comparator<BatchEntry<K, D>> byKey = (a, b) -> a.key.compareTo(b.key);
+            if (n >= PARALLEL_SORT_THRESHOLD) { Arrays.parallelSort(batch, byKey); }
+            else { Arrays.sort(batch, byKey); }
+
+            sortedKeys = (K[]) new Comparable[n];
+            sortedData = (D[]) new Object[n];
+            sortedCounts = new int[n];
+            for (int i = 0; i < n; i++) {
+                sortedKeys[i] = batch[i].key;
+                sortedData[i] = batch[i].data;
+                sortedCounts[i] = batch[i].count;
+            }
+        }
+
+        // merges runs of equal keys in place
+        K[] uniqueKeys = (K[]) new Comparable[n];
+        D[] uniqueData = (D[]) new Object[n];
+        int[] uniqueCounts = new int[n];
+        int nUnique = 0;
+        for (int i = 0; i < n; i++) {
+            if (nUnique > 0 && uniqueKeys[nUnique - 1].compareTo(sortedKeys[i]) == 0) {
+                uniqueCounts[nUnique - 1] += sortedCounts[i];
+            } else {
+                uniqueKeys[nUnique] = sortedKeys[i];
+                uniqueData[nUnique] = sortedData[i];
+                uniqueCounts[nUnique] = sortedCounts[i];
+                nUnique++;
+            }
+        }
+
+        return fromSorted(uniqueKeys, uniqueData, uniqueCounts, nUnique);
+    }
+
+    // builds from n strictly ascending keys, sizing the index so it does not grow during the build
+    private static <K extends Comparable<? super K>, D> FADAF<K, D> fromSorted(K[] keys, D[] data, int[] counts,
+                                                                               int n) {
+        FADAF<K, D> fadaf = new FADAF<>(Math.max(MIN_CAPACITY, n));
+        DAFTree<K, D>.DAFNode<K, D>[] nodes = fadaf.tree.buildBalanced(keys, data, counts, n);
+        for (DAFTree<K, D>.DAFNode<K, D> node : nodes) { fadaf.index.link(node, NodeIndex.hash(node.key)); }
+        return fadaf;
+    }
+
+    /* writes a checksummed binary snapshot of every key, count and data in key order. see SnapshotFile */
+    public void snapshot(Path path, Codec<K> keyCodec, Codec<D> dataCodec) throws IOException {
+        SnapshotFile.write(path, this.tree, keyCodec, dataCodec);
+    }
+
+    /* snapshots with Java serialization, so keys and data must be Serializable */
+    public void snapshot(Path path) throws IOException { this.snapshot(path, Codec.serializable(), Codec.serializable()); }
+
+    /* restores a snapshot through a memory map, building the tree and index in one sequential pass */
+    public static <K extends Comparable<? super K>, D> FADAF<K, D> open(Path path, Codec<K> keyCodec,
+                                                                        Codec<D> dataCodec) throws IOException {
+        SnapshotFile.Contents<K, D> contents = SnapshotFile.read(path, keyCodec, dataCodec);
+        return fromSorted(contents.keys, contents.data, contents.counts, contents.nUnique);
+    }
+
+    public static <K extends Comparable<? super K>, D> FADAF<K, D> open(Path path) throws IOException {
+        return open(path, Codec.<K>serializable(), Codec.<D>serializable());
+    }
+
+    public int size() { return this.tree.size(); }
+
+    public int nUniqueKeys() { return this.tree.nUniqueKeys(); }
+
+    /* a present key is found through the index alone, without searching the tree */
+    public boolean insert(K key, D data, int nCopy) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (key == null || data == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        int hash = NodeIndex.hash(key);
+        DAFTree<K, D>.DAFNode<K, D> node = this.index.find(key, hash);
+        boolean inserted = node == null;
+        if (inserted) {
+            node = this.tree.insert(key, data, nCopy);
+            this.index.link(node, hash);
+            if (this.byCount != null) { this.byCount.add(node); }
+        } else {
+            // an indexed node is taken out of the count index while its count changes
+            if (this.byCount != null) { this.byCount.remove(node); }
+            this.tree.addCount(node, nCopy);
+            if (this.byCount != null) { this.byCount.add(node); }
+        }
+
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.INSERT, start); }
+        return inserted;
+    }
+
+    public int lookup(K key) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        DAFTree<K, D>.DAFNode<K, D> node = this.find(key);
+        int count = node == null ? 0 : node.count;
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.LOOKUP, start); }
+        return count;
+    }
+
+    public boolean remove(K key, int nCopy) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        DAFTree<K, D>.DAFNode<K, D> node = this.find(key);
+        if (node != null) { this.take(node, nCopy); }
+
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.REMOVE, start); }
+        // false if the key was not present
+        return node != null;
+    }
+
+    public boolean removeAll(K key) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        DAFTree<K, D>.DAFNode<K, D> node = this.find(key);
+        if (node != null) { this.take(node, node.count); }
+
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.REMOVE_ALL, start); }
+        // false if the key was not present
+        return node != null;
+    }
+
+    public boolean update(K key, D newData) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (newData == null) { throw new NullPointerException(); }
+
+        DAFTree<K, D>.DAFNode<K, D> node = this.find(key);
+        if (node != null) { node.data = newData; }
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.UPDATE, start); }
+        return node != null;
+    }
+
+    // removes copies from an indexed node, dropping it from the index once none are left
+    private void take(DAFTree<K, D>.DAFNode<K, D> node, int nCopy) {
+        if (this.byCount != null) { this.byCount.remove(node); }
+        this.tree.removeNode(node, nCopy);
+        // all counts of key removed
+        if (node.count == 0) { this.index.unlink(node); }
+        else if (this.byCount != null) { this.byCount.add(node); }
+    }
+
+    /* inserts each key like insert would, returning whether each position inserted a new key. the batch is
+       sorted and equal keys merged, so each key is probed once and new keys go into the tree in ascending
+       order, each search starting from the previous new node rather than the root. arguments are checked
+       before anything changes */
+    @SuppressWarnings("unchecked")
+    public boolean[] insertBatch(K[] keys, D[] data, int[] nCopies) {
+        if (keys.length != data.length || keys.length != nCopies.length) { throw new IllegalArgumentException(); }
+
+        int n = keys.length;
+        BatchEntry<K, D>[] batch = new BatchEntry[n];
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null || data[i] == null) { throw new NullPointerException(); }
+            if (nCopies[i] < 1) { throw new IllegalArgumentException(); }
+            batch[i] = new BatchEntry<>(keys[i], data[i], nCopies[i]);
+            batch[i].position = i;
+        }
+        // stable, so the first occurrence of a key leads its run and keeps its data
+        Arrays.sort(batch, (a, b) -> a.key.compareTo(b.key));
+
+        boolean[] inserted = new boolean[n];
+        DAFTree<K, D>.DAFNode<K, D> finger = null; // last new node, below every key still to come
+        for (int i = 0; i < n; ) {
+            BatchEntry<K, D> first = batch[i];
+            int total = first.count;
+            for (i++; i < n && batch[i].key.compareTo(first.key) == 0; i++) { total += batch[i].count; }
+
+            int hash = NodeIndex.hash(first.key);
+            DAFTree<K, D>.DAFNode<K, D> node = this.index.find(first.key, hash);
+            if (node == null) {
+                finger = this.tree.insertAfter(finger, first.key, first.data, total);
+                this.index.link(finger, hash);
+                if (this.byCount != null) { this.byCount.add(finger); }
+                inserted[first.position] = true;
+            } else {
+                if (this.byCount != null) { this.byCount.remove(node); }
+                this.tree.addCount(node, total);
+                if (this.byCount != null) { this.byCount.add(node); }
+            }
+        }
+        return inserted;
+    }
+
+    /* the count of each key, 0 if absent */
+    public int[] lookupBatch(K[] keys) { return this.lookupBatch(keys, false); }
+
+    /* with parallel set, batches of PARALLEL_LOOKUP_THRESHOLD keys or more are split across the common
+       fork-join pool. the probes never move index chains, so they only read, but the FADAF must not change
+       during the call */
+    public int[] lookupBatch(K[] keys, boolean parallel) {
+        for (K key : keys) {
+            if (key == null) { throw new NullPointerException(); }
+        }
+
+        int[] counts = new int[keys.length];
+        IntStream positions = IntStream.range(0, keys.length);
+        if (parallel && keys.length >= PARALLEL_LOOKUP_THRESHOLD) { positions = positions.parallel(); }
+        positions.forEach(i -> {
+            DAFTree<K, D>.DAFNode<K, D> node = this.index.peek(keys[i], NodeIndex.hash(keys[i]));
+            counts[i] = node == null ? 0 : node.count;
+        });
+        return counts;
+    }
+
+    /* removes copies of each key in order, like remove would, returning whether each key was present. nodes
+       are reached through the index, so no removal searches the tree */
+    public boolean[] removeBatch(K[] keys, int[] nCopies) {
+        if (keys.length != nCopies.length) { throw new IllegalArgumentException(); }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == null) { throw new NullPointerException(); }
+            if (nCopies[i] < 1) { throw new IllegalArgumentException(); }
+        }
+
+        boolean[] removed = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            DAFTree<K, D>.DAFNode<K, D> node = this.find(keys[i]);
+            if (node != null) {
+                this.take(node, nCopies[i]);
+                removed[i] = true;
+            }
+        }
+        return removed;
+    }
+
+    private DAFTree<K, D>.DAFNode<K, D> find(K key) {
+        if (key == null) { throw new NullPointerException(); }
+        return this.index.find(key, NodeIndex.hash(key));
+    }
+
+    /* with duplicates, returns a read-only view that expands copies lazily instead of a list of every copy.
+       the view reads through to this FADAF, so it must not be iterated while the FADAF changes */
+    public List<K> getAllKeys(boolean allowDuplicate) {
+        if (allowDuplicate) { return new AllKeysView(); }
+
+        LinkedList<K> list = new LinkedList<>();
+        Iterator<K> iter = this.tree.uniqueIterator();
+        while (iter.hasNext()) { list.add(iter.next()); }
+        return list;
+    }
+
+    // every copy of every key, positioned by order statistics and iterated run-length
+    private class AllKeysView extends AbstractList<K> {
+        @Override
+        public K get(int index) { return tree.select(index).key; }
+
+        @Override
+        public int size() { return tree.size(); }
+
+        @Override
+        public Iterator<K> iterator() { return tree.iterator(); }
+
+        @Override
+        public Spliterator<K> spliterator() { return tree.spliterator(); }
+    }
+
+    /* each unique key once with its data and count, in key order, using O(height) memory */
+    public Iterator<Entry<K, D>> entryIterator() {
+        DAFTree<K, D>.DAFTreeUniqueIterator nodes = this.tree.new DAFTreeUniqueIterator();
+        return new Iterator<Entry<K, D>>() {
+            public boolean hasNext() { return nodes.hasNext(); }
+
+            public Entry<K, D> next() {
+                DAFTree<K, D>.DAFNode<K, D> node = nodes.nextNode();
+                return new Entry<>(node.key, node.data, node.count);
+            }
+        };
+    }
+
+    public List<K> getUniqueKeysInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        LinkedList<K> list = new LinkedList<>();
+        Iterator<K> iter = this.uniqueKeysInRange(lower, false, upper, false, false);
+        while (iter.hasNext()) { list.add(iter.next()); }
+        if (Metrics.ENABLED) { Metrics.FADAF.record(Metrics.Op.RANGE, start); }
+        return list;
+    }
+
+    /* lazily yields the unique keys between the bounds, starting with an O(log n) seek. null bounds are open */
+    public Iterator<K> uniqueKeysInRange(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                         boolean descending) {
+        return this.tree.rangeIterator(lower, lowerInclusive, upper, upperInclusive, descending);
+    }
+
+    /* the k most frequent keys, most frequent first and ties in key order. the first call indexes every key
+       by count in O(n log n); later calls take O(log n + k) and keep insert and remove at O(log n) */
+    public List<K> topK(int k) {
+        if (k < 0) { throw new IllegalArgumentException(); }
+
+        if (this.byCount == null) {
+            this.byCount = new TreeSet<>((a, b) -> a.count != b.count ? Integer.compare(b.count, a.count)
+                                                                       : a.key.compareTo(b.key));
+            DAFTree<K, D>.DAFTreeUniqueIterator iter = this.tree.new DAFTreeUniqueIterator();
+            while (iter.hasNext()) { this.byCount.add(iter.nextNode()); }
+        }
+
+        List<K> top = new ArrayList<>(Math.min(k, this.nUniqueKeys()));
+        Iterator<DAFTree<K, D>.DAFNode<K, D>> iter = this.byCount.iterator();
+        while (top.size() < k && iter.hasNext()) { top.add(iter.next().key); }
+        return top;
+    }
+
+    /* every copy of every key in order. the FADAF must not change while the stream is in use */
+    public Stream<K> stream() { return StreamSupport.stream(this.tree.spliterator(), false); }
+
+    /* like stream(), split across the common fork-join pool by subtree */
+    public Stream<K> parallelStream() { return StreamSupport.stream(this.tree.spliterator(), true); }
+
+    /* one entry per unique key in key order. call parallel() on it to aggregate across cores */
+    public Stream<Entry<K, D>> entryStream() {
+        Spliterator<Entry<K, D>> entries = this.tree.nodeSpliterator(false,
+                node -> new Entry<>(node.key, node.data, node.count), Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(entries, false);
+    }
+
+    public int rank(K key) { return this.tree.rank(key); }
+
+    public K select(int index) { return this.tree.select(index).key; }
+
+    public int countInRange(K lower, K upper) { return this.tree.countInRange(lower, upper); }
+
+    public K getMinKey() {
+        if (this.tree.getRoot() == null) { return null; }
+        else {
+            DAFTree<K, D>.DAFNode<K, D> curr = this.tree.getRoot();
+            while (curr.left != null) { curr = curr.left; }
+            return curr.key;
+        }
+    }
+
+    public K getMaxKey() {
+        if (this.tree.getRoot() == null) { return null; }
+        else {
+            DAFTree<K, D>.DAFNode<K, D> curr = this.tree.getRoot();
+            while (curr.right != null) { curr = curr.right; }
+            return curr.key;
+        }
+    }
+
+}
@@ -0,0 +1,222 @@
+package fadaf;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * Blocking client for FADAFServer. Single calls send one request and wait for its answer. For throughput,
+ * several requests go into a Batch, which travels as one frame; send queues a batch without waiting, so any
+ * number of batches can be in flight, and receive collects their results in the order they were sent.
+ * A client is not thread-safe; give each thread its own.
+ */
+public class FADAFClient<K extends Comparable<? super K>, D> implements Closeable {
+
+    private static final int BUFFER = 1 << 16;
+
+    private final SocketChannel channel;
+    private final Codec<K> keyCodec;
+    private final Codec<D> dataCodec;
+    private ByteBuffer out = ByteBuffer.allocate(BUFFER); // frames not yet written, in write mode
+    private ByteBuffer in = ByteBuffer.allocate(BUFFER); // bytes read but not yet decoded, in write mode
+    private final ArrayDeque<byte[]> inFlight = new ArrayDeque<>(); // ops of each sent batch, oldest first
+
+    /* requests sent together in one frame */
+    public static final class Batch<K, D> {
+        private final FADAFClient<?, ?> client;
+        private ByteBuffer requests = ByteBuffer.allocate(256);
+        private byte[] ops = new byte[16];
+        private int size;
+
+        private Batch(FADAFClient<?, ?> client) { this.client = client; }
+
+        public int size() { return this.size; }
+
+        public Batch<K, D> insert(K key, D data, int nCopy) {
+            this.op(Protocol.INSERT).key(key).data(data);
+            this.requests = Protocol.grow(this.requests, Integer.BYTES);
+            this.requests.putInt(nCopy);
+            return this;
+        }
+
+        public Batch<K, D> lookup(K key) { return this.op(Protocol.LOOKUP).key(key); }
+
+        public Batch<K, D> remove(K key, int nCopy) {
+            this.op(Protocol.REMOVE).key(key);
+            this.requests = Protocol.grow(this.requests, Integer.BYTES);
+            this.requests.putInt(nCopy);
+            return this;
+        }
+
+        public Batch<K, D> removeAll(K key) { return this.op(Protocol.REMOVE_ALL).key(key); }
+
+        public Batch<K, D> update(K key, D newData) { return this.op(Protocol.UPDATE).key(key).data(newData); }
+
+        public Batch<K, D> getUniqueKeysInRange(K lower, K upper) { return this.op(Protocol.RANGE).key(lower).key(upper); }
+
+        public Batch<K, D> getMinKey() { return this.op(Protocol.MIN); }
+
+        public Batch<K, D> getMaxKey() { return this.op(Protocol.MAX); }
+
+        private Batch<K, D> op(byte op) {
+            if (this.size == this.ops.length) { this.ops = Arrays.copyOf(this.ops, this.size * 2); }
+            this.ops[this.size++] = op;
+            this.requests = Protocol.grow(this.requests, Byte.BYTES);
+            this.requests.put(op);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Batch<K, D> key(K key) { return this.value((Codec<Object>) this.client.keyCodec, key); }
+
+        @SuppressWarnings("unchecked")
+        private Batch<K, D> data(D data) { return this.value((Codec<Object>) this.client.dataCodec, data); }
+
+        private Batch<K, D> value(Codec<Object> codec, Object value) {
+            if (value == null) { throw new NullPointerException(); }
+            this.requests = Protocol.grow(this.requests, Protocol.valueSize(codec, value));
+            Protocol.writeValue(codec, value, this.requests);
+            return this;
+        }
+    }
+
+    public FADAFClient(InetSocketAddress address, Codec<K> keyCodec, Codec<D> dataCodec) throws IOException {
+        if (address == null || keyCodec == null || dataCodec == null) { throw new NullPointerException(); }
+
+        this.keyCodec = keyCodec;
+        this.dataCodec = dataCodec;
+        this.channel = SocketChannel.open(address);
+        this.channel.socket().setTcpNoDelay(true);
+    }
+
+    public Batch<K, D> batch() { return new Batch<>(this); }
+
+    public boolean insert(K key, D data, int nCopy) throws IOException {
+        return (Boolean) this.call(this.batch().insert(key, data, nCopy));
+    }
+
+    public int lookup(K key) throws IOException { return (Integer) this.call(this.batch().lookup(key)); }
+
+    public boolean remove(K key, int nCopy) throws IOException {
+        return (Boolean) this.call(this.batch().remove(key, nCopy));
+    }
+
+    public boolean removeAll(K key) throws IOException { return (Boolean) this.call(this.batch().removeAll(key)); }
+
+    public boolean update(K key, D newData) throws IOException {
+        return (Boolean) this.call(this.batch().update(key, newData));
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<K> getUniqueKeysInRange(K lower, K upper) throws IOException {
+        return (List<K>) this.call(this.batch().getUniqueKeysInRange(lower, upper));
+    }
+
+    @SuppressWarnings("unchecked")
+    public K getMinKey() throws IOException { return (K) this.call(this.batch().getMinKey()); }
+
+    @SuppressWarnings("unchecked")
+    public K getMaxKey() throws IOException { return (K) this.call(this.batch().getMaxKey()); }
+
+    private Object call(Batch<K, D> batch) throws IOException {
+        this.send(batch);
+        return this.receive().get(0);
+    }
+
+    /* sends the batch and waits for its results */
+    public List<Object> execute(Batch<K, D> batch) throws IOException {
+        this.send(batch);
+        return this.receive();
+    }
+
+    /* queues the batch behind any already in flight, writing only once the send buffer fills up. the server
+       stops reading from a client that leaves megabytes of responses unread, so keep what is in flight bounded */
+    public void send(Batch<K, D> batch) throws IOException {
+        if (batch.client != this) { throw new IllegalArgumentException(); }
+        if (batch.size == 0) { return; }
+        if (batch.requests.position() > Protocol.MAX_FRAME) { throw new IllegalArgumentException("batch too large"); }
+
+        if (this.out.remaining() < Integer.BYTES + batch.requests.position()) { this.flush(); }
+        this.out = Protocol.grow(this.out, Integer.BYTES + batch.requests.position());
+        this.out.putInt(batch.requests.position());
+        this.out.put(batch.requests.duplicate().flip());
+        this.inFlight.add(Arrays.copyOf(batch.ops, batch.size));
+    }
+
+    public void flush() throws IOException {
+        this.out.flip();
+        while (this.out.hasRemaining()) { this.channel.write(this.out); }
+        this.out.clear();
+    }
+
+    /* number of sent batches whose results have not been received */
+    public int inFlight() { return this.inFlight.size(); }
+
+    /* results of the oldest batch in flight, in request order: a Boolean for insert, remove, removeAll and
+       update, an Integer for lookup, a List of keys for a range, and a key or null for min and max. a request
+       the server rejected throws IllegalArgumentException once the rest of its batch has been read */
+    public List<Object> receive() throws IOException {
+        byte[] ops = this.inFlight.poll();
+        if (ops == null) { throw new IllegalStateException("nothing in flight"); }
+        this.flush();
+
+        this.fill(Integer.BYTES);
+        int length = this.in.getInt(0);
+        this.fill(Integer.BYTES + length);
+        ByteBuffer frame = this.in.slice(Integer.BYTES, length);
+
+        List<Object> results = new ArrayList<>(ops.length);
+        String error = null;
+        for (byte op : ops) {
+            if (frame.get() == Protocol.ERROR) {
+                byte[] message = new byte[frame.getInt()];
+                frame.get(message);
+                if (error == null) { error = new String(message, StandardCharsets.UTF_8); }
+                results.add(null);
+                continue;
+            }
+            results.add(this.decode(op, frame));
+        }
+
+        // keeps whatever arrived of later frames
+        this.in.flip().position(Integer.BYTES + length);
+        this.in.compact();
+        if (error != null) { throw new IllegalArgumentException(error); }
+        return results;
+    }
+
+    private Object decode(byte op, ByteBuffer frame) {
+        switch (op) {
+            case Protocol.LOOKUP:
+                return frame.getInt();
+            case Protocol.RANGE: {
+                int n = frame.getInt();
+                List<K> keys = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) { keys.add(Protocol.readValue(this.keyCodec, frame)); }
+                return keys;
+            }
+            case Protocol.MIN:
+            case Protocol.MAX:
+                return frame.get() == 0 ? null : Protocol.readValue(this.keyCodec, frame);
+            default:
+                return frame.get() != 0;
+        }
+    }
+
+    // reads until at least the given number of bytes are buffered
+    private void fill(int bytes) throws IOException {
+        if (this.in.capacity() < bytes) { this.in = Protocol.grow(this.in, bytes - this.in.position()); }
+        while (this.in.position() < bytes) {
+            if (this.channel.read(this.in) < 0) { throw new EOFException(); }
+        }
+    }
+
+    @Override
+    public void close() throws IOException { this.channel.close(); }
+
+}
@@ -0,0 +1,78 @@
+package fadaf;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * The counting and ordered-query operations of a FADAF, whatever stores its keys. FADAF and OffHeapFADAF both
+ * implement it, so one cannot gain a query the other lacks, and queries built only from the others are
+ * written once here.
+ */
+public interface FADAFOperations<K extends Comparable<? super K>, D> {
+
+    int size();
+
+    int nUniqueKeys();
+
+    /* adds nCopy copies of the key, returning whether the key was new. data is kept only for a new key */
+    boolean insert(K key, D data, int nCopy);
+
+    /* number of copies of the key, 0 if it is not present */
+    int lookup(K key);
+
+    /* takes away up to nCopy copies, returning false if the key was not present */
+    boolean remove(K key, int nCopy);
+
+    boolean removeAll(K key);
+
+    boolean update(K key, D newData);
+
+    List<K> getAllKeys(boolean allowDuplicate);
+
+    /* each unique key once with its data and count, in key order */
+    Iterator<FADAF.Entry<K, D>> entryIterator();
+
+    /* unique keys strictly between lower and upper, in order */
+    List<K> getUniqueKeysInRange(K lower, K upper);
+
+    /* lazily yields the unique keys between the bounds. null bounds are open */
+    Iterator<K> uniqueKeysInRange(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                  boolean descending);
+
+    default Stream<K> uniqueKeyStream(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                      boolean descending) {
+        Iterator<K> iter = this.uniqueKeysInRange(lower, lowerInclusive, upper, upperInclusive, descending);
+        int characteristics = Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iter, characteristics), false);
+    }
+
+    /* the k most frequent keys, most frequent first and ties in key order */
+    List<K> topK(int k);
+
+    /* number of copies of keys less than the given key */
+    int rank(K key);
+
+    /* key of the copy at the given 0-based position of the sorted multiset */
+    K select(int index);
+
+    /* number of copies of keys strictly between lower and upper */
+    int countInRange(K lower, K upper);
+
+    /* nearest-rank percentile, null if empty */
+    default K percentile(double p) {
+        if (!(p >= 0 && p <= 100)) { throw new IllegalArgumentException(); }
+        if (this.size() == 0) { return null; }
+
+        int index = (int) Math.ceil(p / 100 * this.size()) - 1;
+        return this.select(Math.max(0, index));
+    }
+
+    K getMinKey();
+
+    K getMaxKey();
+
+}
@@ -0,0 +1,307 @@
+package fadaf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Serves a ShardedFADAF over TCP using the binary format in Protocol. An acceptor thread hands each new
+ * connection to one of nLoops event loops in turn. A loop owns its connections outright: it reads whatever
+ * frames have arrived, runs every request in them against the shared FADAF, and queues the responses, so
+ * pipelined frames are answered in one pass without waiting on the network. A connection stops being read, and
+ * its buffered frames stop being answered, while its unsent responses exceed MAX_PENDING, which keeps a client
+ * that never reads from piling up memory.
+ */
+public class FADAFServer<K extends Comparable<? super K>, D> implements Closeable {
+
+    private static final int READ_BUFFER = 1 << 16;
+    private static final int MAX_PENDING = 1 << 22;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    private final ShardedFADAF<K, D> fadaf;
+    private final Codec<K> keyCodec;
+    private final Codec<D> dataCodec;
+
+    private final ServerSocketChannel server;
+    private final List<Loop> loops;
+    private final List<Thread> loopThreads;
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /* binds to the address, port 0 picking a free port, and starts serving at once */
+    public FADAFServer(ShardedFADAF<K, D> fadaf, Codec<K> keyCodec, Codec<D> dataCodec, InetSocketAddress address,
+                       int nLoops) throws IOException {
+        if (fadaf == null || keyCodec == null || dataCodec == null || address == null) {
+            throw new NullPointerException();
+        }
+        if (nLoops < 1) { throw new IllegalArgumentException(); }
+
+        this.fadaf = fadaf;
+        this.keyCodec = keyCodec;
+        this.dataCodec = dataCodec;
+        this.server = ServerSocketChannel.open().bind(address);
+        this.loops = new ArrayList<>(nLoops);
+        this.loopThreads = new ArrayList<>(nLoops);
+        for (int i = 0; i < nLoops; i++) {
+            Loop loop = new Loop();
+            Thread thread = new Thread(loop, "fadaf-server-loop-" + i);
+            thread.setDaemon(true);
+            this.loops.add(loop);
+            this.loopThreads.add(thread);
+            thread.start();
+        }
+        this.acceptor = new Thread(this::accept, "fadaf-server-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    public InetSocketAddress address() throws IOException { return (InetSocketAddress) this.server.getLocalAddress(); }
+
+    /* stops accepting, closes every connection and returns once all server threads have exited */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.server.close();
+        for (Loop loop : this.loops) { loop.selector.wakeup(); }
+        try {
+            this.acceptor.join();
+            for (Thread thread : this.loopThreads) { thread.join(); }
+        } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    }
+
+    private void accept() {
+        int next = 0;
+        long backoff = 1;
+        while (!this.closed) {
+            SocketChannel channel;
+            try {
+                channel = this.server.accept();
+                backoff = 1;
+            } catch (ClosedChannelException e) {
+                return; // the server socket was closed
+            } catch (IOException e) {
+                // such as running out of file descriptors. waits, longer each time, instead of spinning on it
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) { return; }
+                backoff = Math.min(backoff * 2, MAX_ACCEPT_BACKOFF_MILLIS);
+                continue;
+            }
+
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+            } catch (IOException e) {
+                // this one connection failed before it was handed off
+                try {
+                    channel.close();
+                } catch (IOException closing) { /* already closing */ }
+                continue;
+            }
+            Loop loop = this.loops.get(next++ % this.loops.size());
+            loop.accepted.add(channel);
+            loop.selector.wakeup();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Connection connection(SelectionKey key) { return (Connection) key.attachment(); }
+
+    // one selector and the connections registered with it, run by a single thread
+    private final class Loop implements Runnable {
+        final Selector selector;
+        final ConcurrentLinkedQueue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+
+        Loop() throws IOException { this.selector = Selector.open(); }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed) {
+                    this.selector.select();
+                    for (SocketChannel channel; (channel = this.accepted.poll()) != null; ) {
+                        channel.register(this.selector, SelectionKey.OP_READ, new Connection(channel));
+                    }
+
+                    Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = connection(key);
+                        try {
+                            if (key.isReadable()) { connection.read(); }
+                            if (key.isValid() && key.isWritable()) { connection.drain(); }
+                            if (key.isValid()) { key.interestOps(connection.interest()); }
+                        } catch (IOException | RuntimeException e) {
+                            // a failed or misbehaving client only loses its own connection
+                            key.cancel();
+                            connection.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the selector failed, nothing left to serve from this loop
+            } finally {
+                for (SelectionKey key : this.selector.keys()) { connection(key).close(); }
+                try {
+                    this.selector.close();
+                } catch (IOException e) { /* already closing */ }
+            }
+        }
+    }
+
+    private final class Connection {
+        final SocketChannel channel;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER); // filled by reads, then drained frame by frame
+        ByteBuffer out = ByteBuffer.allocate(READ_BUFFER); // responses not yet written, in write mode
+
+        Connection(SocketChannel channel) { this.channel = channel; }
+
+        int interest() {
+            int ops = this.out.position() > 0 ? SelectionKey.OP_WRITE : 0;
+            return this.out.position() < MAX_PENDING ? ops | SelectionKey.OP_READ : ops;
+        }
+
+        void read() throws IOException {
+            if (this.channel.read(this.in) < 0) { throw new ClosedChannelException(); }
+            this.drain();
+        }
+
+        // writes what it can and answers buffered frames, until none is left or MAX_PENDING is reached. frames
+        // held back are answered on a later write event, once the client has read enough
+        void drain() throws IOException {
+            while (true) {
+                boolean more = this.respondToFrames();
+                this.flush();
+                if (!more || this.out.position() >= MAX_PENDING) { return; }
+            }
+        }
+
+        // returns whether it stopped at MAX_PENDING with a whole frame still buffered
+        private boolean respondToFrames() {
+            this.in.flip();
+            boolean more = false;
+            while (this.in.remaining() >= Integer.BYTES) {
+                int length = this.in.getInt(this.in.position());
+                if (length < 0 || length > Protocol.MAX_FRAME) { throw new IllegalStateException("bad frame length"); }
+                if (this.in.remaining() < Integer.BYTES + length) { break; }
+                // a single response frame has no size limit, so the check comes before each frame
+                if (this.out.position() >= MAX_PENDING) {
+                    more = true;
+                    break;
+                }
+
+                int start = this.in.position() + Integer.BYTES;
+                this.respond(this.in.slice(start, length));
+                this.in.position(start + length);
+            }
+            this.in.compact();
+
+            // makes room for the whole of a frame larger than the buffer
+            if (this.in.position() >= Integer.BYTES) {
+                int length = this.in.getInt(0);
+                this.in = Protocol.grow(this.in, Integer.BYTES + length - this.in.position());
+            }
+            return more;
+        }
+
+        void flush() throws IOException {
+            this.out.flip();
+            this.channel.write(this.out);
+            this.out.compact();
+        }
+
+        // runs every request in the frame, answering with one response frame
+        void respond(ByteBuffer frame) {
+            this.out = Protocol.grow(this.out, Integer.BYTES);
+            int lengthAt = this.out.position();
+            this.out.position(lengthAt + Integer.BYTES);
+            while (frame.hasRemaining()) { this.execute(frame); }
+            this.out.putInt(lengthAt, this.out.position() - lengthAt - Integer.BYTES);
+        }
+
+        private void execute(ByteBuffer frame) {
+            byte op = frame.get();
+            int responseAt = this.out.position();
+            try {
+                switch (op) {
+                    case Protocol.INSERT: {
+                        K key = Protocol.readValue(keyCodec, frame);
+                        D data = Protocol.readValue(dataCodec, frame);
+                        this.ok(Byte.BYTES).put(fadaf.insert(key, data, frame.getInt()) ? (byte) 1 : 0);
+                        break;
+                    }
+                    case Protocol.LOOKUP:
+                        this.ok(Integer.BYTES).putInt(fadaf.lookup(Protocol.readValue(keyCodec, frame)));
+                        break;
+                    case Protocol.REMOVE: {
+                        K key = Protocol.readValue(keyCodec, frame);
+                        this.ok(Byte.BYTES).put(fadaf.remove(key, frame.getInt()) ? (byte) 1 : 0);
+                        break;
+                    }
+                    case Protocol.REMOVE_ALL:
+                        this.ok(Byte.BYTES).put(fadaf.removeAll(Protocol.readValue(keyCodec, frame)) ? (byte) 1 : 0);
+                        break;
+                    case Protocol.UPDATE: {
+                        K key = Protocol.readValue(keyCodec, frame);
+                        D data = Protocol.readValue(dataCodec, frame);
+                        this.ok(Byte.BYTES).put(fadaf.update(key, data) ? (byte) 1 : 0);
+                        break;
+                    }
+                    case Protocol.RANGE: {
+                        K lower = Protocol.readValue(keyCodec, frame);
+                        K upper = Protocol.readValue(keyCodec, frame);
+                        List<K> keys = fadaf.getUniqueKeysInRange(lower, upper);
+                        this.ok(Integer.BYTES).putInt(keys.size());
+                        for (K key : keys) { this.putKey(key); }
+                        break;
+                    }
+                    case Protocol.MIN:
+                    case Protocol.MAX: {
+                        K key = op == Protocol.MIN ? fadaf.getMinKey() : fadaf.getMaxKey();
+                        this.ok(Byte.BYTES).put(key == null ? (byte) 0 : 1);
+                        if (key != null) { this.putKey(key); }
+                        break;
+                    }
+                    default:
+                        // the rest of the frame cannot be parsed without knowing this op
+                        throw new Protocol.MalformedFrameException("unknown op " + op, null);
+                }
+            } catch (Protocol.MalformedFrameException | BufferUnderflowException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // the request itself was rejected, so any status already written for it is replaced
+                this.out.position(responseAt);
+                byte[] message = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+                this.out = Protocol.grow(this.out, Byte.BYTES + Integer.BYTES + message.length);
+                this.out.put(Protocol.ERROR).putInt(message.length).put(message);
+            }
+        }
+
+        // writes an OK status, returning the output with room for a result of the given size
+        private ByteBuffer ok(int resultBytes) {
+            this.out = Protocol.grow(this.out, Byte.BYTES + resultBytes);
+            return this.out.put(Protocol.OK);
+        }
+
+        private void putKey(K key) {
+            this.out = Protocol.grow(this.out, Protocol.valueSize(keyCodec, key));
+            Protocol.writeValue(keyCodec, key, this.out);
+        }
+
+        void close() {
+            try {
+                this.channel.close();
+            } catch (IOException e) { /* already closing */ }
+        }
+    }
+
+}
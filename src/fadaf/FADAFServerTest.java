@@ -0,0 +1,160 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FADAFServerTest {
+
+    ShardedFADAF<String, Double> fadaf;
+    FADAFServer<String, Double> server;
+    FADAFClient<String, Double> client1;
+
+    @Before
+    public void setUp() throws IOException {
+        fadaf = new ShardedFADAF<>(4, 10);
+        server = new FADAFServer<>(fadaf, Codec.STRING, Codec.DOUBLE,
+                                   new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 2);
+        client1 = new FADAFClient<>(server.address(), Codec.STRING, Codec.DOUBLE);
+
+        String[] keys = new String[]{"String", "STRING", "ST", "Str"};
+        Double[] data = new Double[]{0.6, -10.2, -20.202, -4.8};
+        int[] counts = {1, 2, 4, 1};
+        for (int j = 0; j < keys.length; j++) { assertTrue(client1.insert(keys[j], data[j], counts[j])); }
+
+        assertFalse(client1.insert("ST", 22.0, 1));
+        assertTrue(client1.insert("SS", 2.0, 2));
+        assertEquals(11, fadaf.size());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client1.close();
+        server.close();
+    }
+
+    @Test
+    public void testSingleCalls() throws IOException {
+        assertEquals(5, client1.lookup("ST"));
+        assertEquals(0, client1.lookup("STR"));
+        assertTrue(client1.update("ST", 20.202));
+        assertFalse(client1.update("STR", 0.2));
+        assertEquals("SS", client1.getMinKey());
+        assertEquals("String", client1.getMaxKey());
+        assertEquals(Arrays.asList("STRING", "Str", "String"), client1.getUniqueKeysInRange("ST", "string"));
+
+        assertTrue(client1.remove("ST", 4));
+        assertEquals(1, client1.lookup("ST"));
+        assertTrue(client1.removeAll("SS"));
+        assertFalse(client1.removeAll("SS"));
+        assertFalse(client1.remove("SS", 1));
+        assertEquals(5, fadaf.size());
+    }
+
+    @Test
+    public void testBatchAndPipelining() throws IOException {
+        FADAFClient.Batch<String, Double> batch = client1.batch()
+                .lookup("ST").insert("A", 1.0, 3).lookup("A").getMinKey().getUniqueKeysInRange("A", "ST")
+                .removeAll("A").getMaxKey();
+        assertEquals(7, batch.size());
+        assertEquals(Arrays.asList(5, true, 3, "A", Arrays.asList("SS"), true, "String"), client1.execute(batch));
+
+        // many frames in flight before any response is read
+        for (int i = 0; i < 200; i++) {
+            FADAFClient.Batch<String, Double> inserts = client1.batch();
+            for (int j = 0; j < 50; j++) { inserts.insert("key" + (i * 50 + j), (double) j, 1); }
+            client1.send(inserts);
+        }
+        assertEquals(200, client1.inFlight());
+        for (int i = 0; i < 200; i++) {
+            List<Object> results = client1.receive();
+            assertEquals(50, results.size());
+            for (Object inserted : results) { assertEquals(true, inserted); }
+        }
+        assertEquals(0, client1.inFlight());
+        assertEquals(5 + 10000, fadaf.nUniqueKeys());
+    }
+
+    @Test
+    public void testLargeResponse() throws IOException {
+        FADAFClient.Batch<String, Double> inserts = client1.batch();
+        for (int i = 0; i < 100000; i++) { inserts.insert(String.format("k%06d", i), 0.0, 1); }
+        client1.execute(inserts);
+
+        List<String> keys = client1.getUniqueKeysInRange("k", "l");
+        assertEquals(100000, keys.size());
+        assertEquals("k099999", keys.get(keys.size() - 1));
+    }
+
+    @Test
+    public void testPipelinedResponsesBeyondMaxPending() throws IOException {
+        FADAFClient.Batch<String, Double> inserts = client1.batch();
+        for (int i = 0; i < 20000; i++) { inserts.insert(String.format("k%06d", i), 0.0, 1); }
+        client1.execute(inserts);
+
+        // about 9 MB of responses to frames that arrive together, more than the server queues at once
+        for (int i = 0; i < 40; i++) { client1.send(client1.batch().getUniqueKeysInRange("k", "l")); }
+        while (client1.inFlight() > 0) { assertEquals(20000, ((List<?>) client1.receive().get(0)).size()); }
+        assertEquals(1, client1.lookup("k000042"));
+    }
+
+    @Test
+    public void testCloseStopsServerThreads() throws IOException {
+        server.close();
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName().startsWith("fadaf-server-"));
+        }
+    }
+
+    @Test
+    public void testRejectedRequestKeepsConnectionUsable() throws IOException {
+        try {
+            client1.execute(client1.batch().lookup("ST").insert("A", 1.0, 0).lookup("Str"));
+            fail();
+        } catch (IllegalArgumentException e) { /* expected */ }
+        assertEquals(0, client1.lookup("A"));
+        assertEquals(5, client1.lookup("ST"));
+    }
+
+    @Test
+    public void testConcurrentClients() throws Exception {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t * 1000;
+            threads.add(new Thread(() -> {
+                try (FADAFClient<String, Double> client = new FADAFClient<>(server.address(), Codec.STRING,
+                                                                              Codec.DOUBLE)) {
+                    for (int key = first; key < first + 1000; key++) { client.insert("c" + key, 1.0, 2); }
+                } catch (Throwable e) { failure.set(e); }
+            }));
+        }
+        for (Thread thread : threads) { thread.start(); }
+        for (Thread thread : threads) { thread.join(); }
+
+        assertNull(failure.get());
+        assertEquals(5 + 4000, fadaf.nUniqueKeys());
+        assertEquals(2, client1.lookup("c3999"));
+    }
+
+    // test exceptions
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() throws IOException { client1.insert(null, 2.0, 2); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() throws IOException { client1.insert("Str", 2.0, 0); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testServerThrowsIAE() throws IOException {
+        new FADAFServer<>(fadaf, Codec.STRING, Codec.DOUBLE, new InetSocketAddress(0), 0);
+    }
+
+}
@@ -0,0 +1,588 @@
+package fadaf;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FADAFTest {
+
+    FADAF fadaf1;
+
+    @Before
+    public void setUp(){
+        fadaf1 = new FADAF(10);
+
+        String[] keys2 = new String[]{"String", "STRING", "ST", "Str"};
+        Double[] data2 = new Double[]{0.6, -10.2, -20.202, -4.8};
+        int[] counts2 = {1, 2, 4, 1};
+        for (int j = 0; j < keys2.length; j++) {
+            assertTrue(fadaf1.insert(keys2[j], data2[j], counts2[j]));
+        }
+
+        assertEquals(8, fadaf1.size());
+        assertEquals(4, fadaf1.nUniqueKeys());
+
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 220, 2));
+
+        assertEquals("SS", fadaf1.getMinKey());
+        assertEquals("String", fadaf1.getMaxKey());
+
+        assertEquals(11, fadaf1.size());
+        assertEquals(5, fadaf1.nUniqueKeys());
+
+        assertEquals(0, fadaf1.lookup("string"));
+        assertEquals(1, fadaf1.lookup("String"));
+        assertEquals(2, fadaf1.lookup("STRING"));
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(1, fadaf1.lookup("Str"));
+        assertEquals(2, fadaf1.lookup("SS"));
+        assertEquals(0, fadaf1.lookup("STR"));
+
+        assertTrue(fadaf1.update("ST", 20.202));
+        assertTrue(fadaf1.update("String", 0.8));
+        assertFalse(fadaf1.update("string", 0.2));
+        assertFalse(fadaf1.update("STR", 0.2));
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(1, fadaf1.lookup("String"));
+        assertEquals(0, fadaf1.lookup("string"));
+        assertEquals(0, fadaf1.lookup("string"));
+
+        assertTrue(fadaf1.remove("SS", 1));
+        assertEquals(1, fadaf1.lookup("SS"));
+        assertTrue(fadaf1.update("SS", 0.04));
+
+        assertTrue(fadaf1.remove("ST", 4));
+        assertEquals(1, fadaf1.lookup("ST"));
+        assertTrue(fadaf1.remove("ST", 1));
+        assertEquals(0, fadaf1.lookup("ST"));
+
+        assertTrue(fadaf1.remove("Str", 1));
+
+        assertTrue(fadaf1.remove("String", 1));
+        assertTrue(fadaf1.insert("String", 220, 2));
+        assertFalse(fadaf1.insert("String", 22.0, 1));
+
+        assertEquals(6, fadaf1.size());
+        assertEquals(3, fadaf1.nUniqueKeys());
+
+        assertTrue(fadaf1.removeAll("SS"));
+        assertEquals(0, fadaf1.lookup("SS"));
+
+        assertEquals("STRING", fadaf1.getMinKey());
+        assertEquals("String", fadaf1.getMaxKey());
+
+        assertEquals(2, fadaf1.lookup("STRING"));
+        assertTrue(fadaf1.removeAll("STRING"));
+        assertEquals(0, fadaf1.lookup("SS"));
+
+        assertEquals(3, fadaf1.size());
+        assertEquals(1, fadaf1.nUniqueKeys());
+
+        assertEquals("String", fadaf1.getMinKey());
+        assertEquals("String", fadaf1.getMaxKey());
+
+        assertEquals(3, fadaf1.lookup("String"));
+        assertTrue(fadaf1.removeAll("String"));
+        assertEquals(0, fadaf1.lookup("String"));
+
+        assertEquals(0, fadaf1.size());
+        assertEquals(0, fadaf1.nUniqueKeys());
+
+        assertEquals(null, fadaf1.getMinKey());
+        assertEquals(null, fadaf1.getMaxKey());
+    }
+
+    @Test
+    public void testIterator() {
+        String[] inOrder = new String[]{"SS", "SS", "ST", "ST", "ST", "ST", "ST", "STRING", "STRING", "Str", "String"};
+        List<String> fromIterator = fadaf1.getAllKeys(true);
+        int i = 0;
+        for (String key : fromIterator) {
+            assertEquals(key, inOrder[i]);
+            i++;
+        }
+
+        String[] inOrderUnique = new String[]{"SS", "ST", "STRING", "Str", "String"};
+        List<String> fromIteratorUnique = fadaf1.getAllKeys(false);
+        int j = 0;
+        for (String key : fromIteratorUnique) {
+            assertEquals(key, inOrderUnique[j]);
+            j++;
+        }
+
+        String[] inRange = new String[]{"SS", "ST", "STRING", "Str", "String"};
+        List<String> fromIteratorRange = fadaf1.getUniqueKeysInRange("AA", "Z");
+        int k = 0;
+        for (String key : fromIteratorRange) {
+            assertEquals(key, inRange[k]);
+            k++;
+        }
+
+        String[] inRange2 = new String[]{"STRING", "Str", "String"};
+        List<String> fromIteratorRange2 = fadaf1.getUniqueKeysInRange("ST", "string");
+        int l = 0;
+        for (String key : fromIteratorRange2) {
+            assertEquals(key, inRange2[l]);
+            l++;
+        }
+    }
+
+    @Test
+    public void testRangeCursor() {
+        FADAF<Integer, String> fadaf = new FADAF<>(10);
+        for (int i = 0; i < 1000; i += 2) { fadaf.insert(i, "d", 2); }
+
+        Iterator<Integer> iter = fadaf.uniqueKeysInRange(990, false, null, false, false);
+        assertEquals(Integer.valueOf(992), iter.next());
+        assertEquals(Integer.valueOf(994), iter.next());
+        assertEquals(Integer.valueOf(996), iter.next());
+        assertEquals(Integer.valueOf(998), iter.next());
+        assertFalse(iter.hasNext());
+
+        assertEquals(Arrays.asList(10, 12, 14), fadaf.uniqueKeyStream(10, true, 15, true, false)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(14, 12), fadaf.uniqueKeyStream(10, false, 14, true, true)
+                .collect(Collectors.toList()));
+        assertEquals(Arrays.asList(4, 2, 0), fadaf.uniqueKeyStream(null, false, 5, false, true)
+                .collect(Collectors.toList()));
+        assertEquals(500, fadaf.uniqueKeyStream(null, false, null, false, false).count());
+        assertEquals(0, fadaf.uniqueKeyStream(11, false, 11, true, false).count());
+        assertEquals(Arrays.asList(12), fadaf.getUniqueKeysInRange(10, 14));
+    }
+
+    @Test
+    public void testOrderStatistics() {
+        FADAF<Integer, String> fadaf = new FADAF<>(10);
+        for (int i = 1; i <= 100; i++) { fadaf.insert(i, "d", i % 3 + 1); }
+        fadaf.removeAll(50);
+        fadaf.remove(1, 1);
+
+        int copies = 0;
+        for (int i = 1; i <= 100; i++) {
+            assertEquals(copies, fadaf.rank(i));
+            copies += fadaf.lookup(i);
+        }
+        assertEquals(copies, fadaf.size());
+
+        assertEquals(Integer.valueOf(1), fadaf.select(0));
+        assertEquals(Integer.valueOf(2), fadaf.select(1));
+        assertEquals(Integer.valueOf(100), fadaf.select(fadaf.size() - 1));
+        assertEquals(fadaf.rank(60) - fadaf.rank(11), fadaf.countInRange(10, 60));
+
+        assertEquals(Integer.valueOf(1), fadaf.percentile(0));
+        assertEquals(fadaf.select(fadaf.size() / 2 - 1), fadaf.percentile(50));
+        assertEquals(Integer.valueOf(100), fadaf.percentile(100));
+        assertEquals(null, new FADAF<Integer, String>(10).percentile(50));
+    }
+
+    @Test
+    public void testTopK() {
+        FADAF<Integer, String> fadaf = new FADAF<>(10);
+        assertEquals(Arrays.asList(), fadaf.topK(3));
+        for (int i = 0; i < 1000; i++) { fadaf.insert(i, "d", i % 10 + 1); }
+        assertEquals(Arrays.asList(9, 19, 29), fadaf.topK(3));
+
+        // the index built by the first call follows every later count change
+        fadaf.insert(5, "d", 100);
+        fadaf.remove(19, 5);
+        fadaf.removeAll(29);
+        fadaf.remove(39, 10);
+        try {
+            fadaf.insert(9, "d", 0);
+            fail();
+        } catch (IllegalArgumentException e) { }
+        fadaf.insert(2000, "d", 10);
+        assertEquals(Arrays.asList(5, 9, 49, 59), fadaf.topK(4));
+
+        List<Integer> expected = fadaf.getAllKeys(false);
+        expected.sort((a, b) -> fadaf.lookup(a) != fadaf.lookup(b) ? fadaf.lookup(b) - fadaf.lookup(a) : a - b);
+        assertEquals(expected, fadaf.topK(fadaf.nUniqueKeys() + 5));
+    }
+
+    @Test
+    public void testStreams() {
+        FADAF<Integer, Integer> fadaf = new FADAF<>(10);
+        long expected = 0;
+        for (int i = 0; i < 100000; i++) {
+            fadaf.insert(i, i * 2, 1 + i % 4);
+            expected += (long) i * (1 + i % 4);
+        }
+
+        assertEquals(expected, fadaf.stream().mapToLong(Integer::longValue).sum());
+        assertEquals(expected, fadaf.parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(fadaf.getAllKeys(true), fadaf.parallelStream().collect(Collectors.toList()));
+
+        List<FADAF.Entry<Integer, Integer>> entries = fadaf.entryStream().parallel()
+                .filter(entry -> entry.getCount() == 4).collect(Collectors.toList());
+        assertEquals(25000, entries.size());
+        assertEquals(Integer.valueOf(3), entries.get(0).getKey());
+        assertEquals(Integer.valueOf(6), entries.get(0).getData());
+        assertEquals(expected, fadaf.entryStream().parallel()
+                .mapToLong(entry -> (long) entry.getKey() * entry.getCount()).sum());
+    }
+
+    @Test
+    public void testDuplicateViewAndEntries() {
+        FADAF<String, Integer> fadaf = new FADAF<>(10);
+        fadaf.insert("b", 2, 10000000);
+        fadaf.insert("a", 1, 1);
+        fadaf.insert("c", 3, 2);
+
+        // the copies are expanded on demand, not stored
+        List<String> all = fadaf.getAllKeys(true);
+        assertEquals(10000003, all.size());
+        assertEquals("a", all.get(0));
+        assertEquals("b", all.get(5000000));
+        assertEquals("c", all.get(10000002));
+        int copies = 0;
+        for (String key : all) { if (key.equals("b")) { copies++; } }
+        assertEquals(10000000, copies);
+        assertEquals(2, all.subList(10000001, 10000003).stream().filter("c"::equals).count());
+
+        Iterator<FADAF.Entry<String, Integer>> entries = fadaf.entryIterator();
+        FADAF.Entry<String, Integer> first = entries.next();
+        assertEquals("a", first.getKey());
+        assertEquals(Integer.valueOf(1), first.getData());
+        assertEquals(1, first.getCount());
+        assertEquals(10000000, entries.next().getCount());
+        assertEquals("c", entries.next().getKey());
+        assertFalse(entries.hasNext());
+    }
+
+    @Test (expected = UnsupportedOperationException.class)
+    public void testDuplicateViewIsReadOnly() { fadaf1.getAllKeys(true).add("S"); }
+
+    @Test (timeout = 5000)
+    public void testMatchesTreeMapWhileIndexGrows() {
+        // multiples of 65537 once shared their low hash bits and piled into a few long chains
+        FADAF<Integer, Integer> fadaf = new FADAF<>(10);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 60000; i++) {
+            int key = random.nextInt(1 << 14) * (random.nextBoolean() ? 1 : 65537);
+            int nCopy = 1 + random.nextInt(3);
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    assertEquals(!expected.containsKey(key), fadaf.insert(key, i, nCopy));
+                    expected.merge(key, nCopy, Integer::sum);
+                    break;
+                case 2:
+                    assertEquals(expected.containsKey(key), fadaf.remove(key, nCopy));
+                    if (expected.containsKey(key)) {
+                        int left = expected.get(key) - nCopy;
+                        if (left > 0) { expected.put(key, left); } else { expected.remove(key); }
+                    }
+                    break;
+                default:
+                    assertEquals(expected.remove(key) != null, fadaf.removeAll(key));
+            }
+            if (i % 100 == 0) { assertEquals((int) expected.getOrDefault(key, 0), fadaf.lookup(key)); }
+        }
+
+        assertEquals(expected.size(), fadaf.nUniqueKeys());
+        assertEquals(new ArrayList<>(expected.keySet()), fadaf.getAllKeys(false));
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), fadaf.lookup(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void testBatchesMatchSingleOps() {
+        FADAF<Integer, Integer> batched = new FADAF<>(10);
+        FADAF<Integer, Integer> single = new FADAF<>(10);
+        batched.topK(1);
+        single.topK(1);
+        Random random = new Random(19);
+        for (int round = 0; round < 200; round++) {
+            int n = random.nextInt(400);
+            Integer[] keys = new Integer[n];
+            Integer[] data = new Integer[n];
+            int[] nCopies = new int[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = random.nextInt(5000);
+                data[i] = round * 1000 + i;
+                nCopies[i] = 1 + random.nextInt(3);
+            }
+
+            if (random.nextInt(3) > 0) {
+                boolean[] inserted = batched.insertBatch(keys, data, nCopies);
+                for (int i = 0; i < n; i++) { assertEquals(single.insert(keys[i], data[i], nCopies[i]), inserted[i]); }
+            } else {
+                boolean[] removed = batched.removeBatch(keys, nCopies);
+                for (int i = 0; i < n; i++) { assertEquals(single.remove(keys[i], nCopies[i]), removed[i]); }
+            }
+        }
+
+        assertEquals(single.size(), batched.size());
+        assertEquals(single.getAllKeys(false), batched.getAllKeys(false));
+        assertEquals(single.topK(20), batched.topK(20));
+        Integer[] probes = new Integer[1 << 15];
+        int[] expected = new int[probes.length];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = random.nextInt(6000);
+            expected[i] = single.lookup(probes[i]);
+        }
+        assertArrayEquals(expected, batched.lookupBatch(probes));
+        assertArrayEquals(expected, batched.lookupBatch(probes, true));
+    }
+
+    @Test
+    public void testInsertBatchAscendingStaysBalanced() {
+        FADAF<Integer, String> fadaf = new FADAF<>(10);
+        Integer[] keys = new Integer[1 << 16];
+        String[] data = new String[keys.length];
+        int[] nCopies = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+            data[i] = "d" + i;
+            nCopies[i] = 1;
+        }
+        fadaf.insertBatch(keys, data, nCopies);
+
+        assertEquals(keys.length, fadaf.size());
+        assertEquals(Integer.valueOf(12345), fadaf.select(12345));
+        assertEquals(1, fadaf.lookup(keys.length - 1));
+        assertEquals(0, fadaf.lookup(keys.length));
+    }
+
+    @Test
+    public void testInsertBatchKeepsFirstData() {
+        FADAF<String, Integer> fadaf = new FADAF<>(10);
+        fadaf.insert("b", 0, 1);
+        boolean[] inserted = fadaf.insertBatch(new String[]{"c", "a", "b", "a", "c"}, new Integer[]{1, 2, 3, 4, 5},
+                                               new int[]{1, 2, 3, 4, 5});
+        assertArrayEquals(new boolean[]{true, true, false, false, false}, inserted);
+        assertEquals(6, fadaf.lookup("a"));
+        assertEquals(4, fadaf.lookup("b"));
+        assertEquals(6, fadaf.lookup("c"));
+        assertEquals(Arrays.asList(2, 0, 1), fadaf.entryStream().map(FADAF.Entry::getData).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBatchesThrowBeforeChanging() {
+        FADAF<String, Integer> fadaf = new FADAF<>(10);
+        try {
+            fadaf.insertBatch(new String[]{"a", null}, new Integer[]{1, 2}, new int[]{1, 1});
+            fail();
+        } catch (NullPointerException e) { assertEquals(0, fadaf.size()); }
+        try {
+            fadaf.insertBatch(new String[]{"a", "b"}, new Integer[]{1, 2}, new int[]{1, 0});
+            fail();
+        } catch (IllegalArgumentException e) { assertEquals(0, fadaf.size()); }
+
+        fadaf.insert("a", 1, 2);
+        try {
+            fadaf.removeBatch(new String[]{"a", "b"}, new int[]{1, -1});
+            fail();
+        } catch (IllegalArgumentException e) { assertEquals(2, fadaf.size()); }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testLookupBatchThrowsNPE() { fadaf1.lookupBatch(new String[]{"Str", null}); }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInsertBatchThrowsIAE() { fadaf1.insertBatch(new String[]{"Str"}, new Double[0], new int[]{1}); }
+
+    @Test
+    public void testBulkLoad() {
+        String[] keys = new String[]{"String", "STRING", "ST", "Str", "ST", "SS", "String"};
+        Double[] data = new Double[]{0.6, -10.2, -20.202, -4.8, 22.0, 220.0, 1.0};
+        int[] counts = {1, 2, 4, 1, 1, 2, 3};
+        FADAF<String, Double> loaded = FADAF.bulkLoad(keys, data, counts);
+
+        assertEquals(14, loaded.size());
+        assertEquals(5, loaded.nUniqueKeys());
+        assertEquals(5, loaded.lookup("ST"));
+        assertEquals(4, loaded.lookup("String"));
+        assertEquals(Arrays.asList("SS", "ST", "STRING", "Str", "String"), loaded.getAllKeys(false));
+        assertEquals(2, loaded.rank("ST"));
+
+        assertFalse(loaded.insert("SS", 1.0, 1));
+        assertTrue(loaded.insert("AA", 1.0, 1));
+        assertTrue(loaded.removeAll("ST"));
+        assertEquals("AA", loaded.getMinKey());
+    }
+
+    @Test
+    public void testBulkLoadLargeBatch() {
+        int n = 100000;
+        Integer[] keys = new Integer[n];
+        Integer[] data = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (i * 7919) % (n / 2);
+            data[i] = i;
+        }
+        FADAF<Integer, Integer> loaded = FADAF.bulkLoad(keys, data);
+
+        assertEquals(n, loaded.size());
+        assertEquals(n / 2, loaded.nUniqueKeys());
+        for (int i = 0; i < n / 2; i += 97) { assertEquals(2, loaded.lookup(i)); }
+        assertEquals(Integer.valueOf(n / 4 - 1), loaded.percentile(50));
+        assertEquals(Integer.valueOf(0), loaded.getMinKey());
+        assertEquals(Integer.valueOf(n / 2 - 1), loaded.getMaxKey());
+
+        Integer[] sorted = new Integer[n / 2];
+        for (int i = 0; i < n / 2; i++) { sorted[i] = i; }
+        assertEquals(n / 2, FADAF.bulkLoad(sorted, sorted).size());
+        assertEquals(0, FADAF.bulkLoad(new Integer[0], new Integer[0]).size());
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("fadaf.snap");
+        FADAF<String, Double> fadaf = new FADAF<>(10);
+        fadaf.insert("String", 0.6, 1);
+        fadaf.insert("STRING", -10.2, 2);
+        fadaf.insert("ST", -20.202, 5);
+        fadaf.insert("\u00e9t\u00e9", 1.5, 3);
+        fadaf.snapshot(path, Codec.STRING, Codec.DOUBLE);
+
+        FADAF<String, Double> restored = FADAF.open(path, Codec.STRING, Codec.DOUBLE);
+        assertEquals(fadaf.getAllKeys(true), restored.getAllKeys(true));
+        assertEquals(11, restored.size());
+        assertEquals(3, restored.lookup("\u00e9t\u00e9"));
+        assertEquals(5, restored.lookup("ST"));
+        assertTrue(restored.insert("new", 1.0, 1));
+
+        // default codecs fall back on serialization
+        fadaf1.snapshot(path);
+        assertEquals(fadaf1.getAllKeys(true), FADAF.open(path).getAllKeys(true));
+    }
+
+    @Test (expected = IOException.class)
+    public void testOpenCorruptSnapshotThrowsIOE() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("fadaf.snap");
+        FADAF<Integer, Integer> fadaf = new FADAF<>(10);
+        for (int i = 0; i < 100; i++) { fadaf.insert(i, i, 1); }
+        fadaf.snapshot(path, Codec.INTEGER, Codec.INTEGER);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 3] ^= 1;
+        Files.write(path, bytes);
+        FADAF.open(path, Codec.INTEGER, Codec.INTEGER);
+    }
+
+    @Test
+    public void testOpenDamagedHeaderOrTruncatedSnapshotThrowsIOE() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("fadaf.snap");
+        FADAF<String, Integer> fadaf = new FADAF<>(10);
+        for (int i = 0; i < 100; i++) { fadaf.insert("key" + i, i, 1); }
+        fadaf.snapshot(path, Codec.STRING, Codec.INTEGER);
+        byte[] bytes = Files.readAllBytes(path);
+
+        // nUnique sits at offset 8 and the first key length right after the header
+        for (int[] damage : new int[][]{{8, 0x7F}, {8, 0x80}, {SnapshotFile.HEADER_BYTES, 0x80},
+                                        {SnapshotFile.HEADER_BYTES + 1, 0x7F}}) {
+            byte[] damaged = bytes.clone();
+            damaged[damage[0]] = (byte) damage[1];
+            Files.write(path, damaged);
+            try {
+                FADAF.open(path, Codec.STRING, Codec.INTEGER);
+                fail();
+            } catch (IOException e) { /* expected */ }
+        }
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        try {
+            FADAF.open(path, Codec.STRING, Codec.INTEGER);
+            fail();
+        } catch (IOException e) { /* expected */ }
+    }
+
+    @Test
+    public void testSnapshotLargeRecordsAndFailedWrite() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("fadaf.snap");
+        FADAF<String, Integer> fadaf = new FADAF<>(10);
+        char[] wide = new char[100000];
+        Arrays.fill(wide, '\u00e9');
+        fadaf.insert(new String(wide), 1, 2);
+        fadaf.insert("small", 2, 1);
+        fadaf.snapshot(path, Codec.STRING, Codec.INTEGER);
+        assertEquals(fadaf.getAllKeys(true), FADAF.open(path, Codec.STRING, Codec.INTEGER).getAllKeys(true));
+
+        Codec<Integer> failing = new Codec<Integer>() {
+            public int size(Integer value) { return Integer.BYTES; }
+
+            public void write(Integer value, ByteBuffer out) { throw new IllegalStateException("cannot encode"); }
+
+            public Integer read(ByteBuffer in, int length) { return in.getInt(); }
+        };
+        try {
+            fadaf.snapshot(path, Codec.STRING, failing);
+            fail();
+        } catch (IllegalStateException e) { /* expected */ }
+        assertFalse(Files.exists(path.resolveSibling("fadaf.snap.tmp")));
+        assertEquals(3, FADAF.open(path, Codec.STRING, Codec.INTEGER).size());
+    }
+
+    @Test (timeout = 5000)
+    public void testSnapshotUnserializableDataThrowsIAE() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("fadaf.snap");
+        FADAF<String, Object> fadaf = new FADAF<>(10);
+        fadaf.insert("key", new Object(), 1);
+        // the codec's error, not a doubling buffer that runs out of memory
+        try {
+            fadaf.snapshot(path);
+            fail();
+        } catch (IllegalArgumentException e) { assertTrue(e.getCause() instanceof NotSerializableException); }
+        assertFalse(Files.exists(path.resolveSibling("fadaf.snap.tmp")));
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testBulkLoadThrowsIAE() { FADAF.bulkLoad(new String[]{"a"}, new Double[]{1.0}, new int[]{0}); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testTopKThrowsIAE() { fadaf1.topK(-1); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testPercentileThrowsIAE() { fadaf1.percentile(101); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { FADAF ffaaddaaff = new FADAF(9); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { fadaf1.insert(null, 2, 2); }
+    @Test (expected = NullPointerException.class)
+    public void testInsertDataThrowsNPE() { fadaf1.insert("Str", null, 2); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert("Str", 2, 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testLookupThrowsNPE() { fadaf1.lookup(null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testUpdateDataKeyThrowsNPE() { fadaf1.update(null, 0); }
+    @Test (expected = NullPointerException.class)
+    public void testUpdateDataDataNPE() { fadaf1.update("Str", null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testRemoveThrowsNPE() { fadaf1.remove(null, 4); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testRemoveThrowsIAE() { fadaf1.remove("Str", 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testRemoveAllThrowsNPE() { fadaf1.removeAll(null); }
+
+}
@@ -0,0 +1,292 @@
+package fadaf;
+
+import java.util.*;
+
+@SuppressWarnings("unchecked")
+public class HashTable<K, D> {
+
+    // flat parallel arrays, indexed by slot. a null key marks an empty slot
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int mask; // slots - 1, the number of slots is always a power of two
+
+    // table being drained by an incremental rehash, null when no rehash is in progress.
+    // slots below oldCursor are drained; drained or deleted keys become MOVED so probe runs stay intact
+    private Object[] oldKeys;
+    private Object[] oldValues;
+    private int[] oldHashes;
+    private int oldMask;
+    private int oldCursor;
+    private long rehashStart; // System.nanoTime() when the rehash began, only kept when metrics are enabled
+
+    private int capacity;
+    private int nElems;
+
+    private static final int MIN_THRESHOLD = 10;
+    private static final double MAX_LF = (double) 2 / 3;
+    private static final int MIGRATE_STEP = 16; // old slots drained per operation during a rehash
+    private static final Object MOVED = new Object();
+
+    public HashTable(int capacity) {
+        if (capacity < MIN_THRESHOLD) { throw new IllegalArgumentException(); }
+        this.capacity = capacity;
+        this.allocate(slotsFor(capacity));
+        this.nElems = 0;
+    }
+
+    /**
+     * Inserts the key-data pair, returning whether it is inserted. Rehashes before insertion if load factor > 2/3
+     * @return true if the pair is inserted and false if the key is already present
+     * @throws NullPointerException if key or data is null
+     */
+    public boolean insert(K key, D data) {
+        if (key == null || data == null) { throw new NullPointerException(); }
+
+        this.migrate(MIGRATE_STEP);
+        int hash = hash(key);
+        if (this.find(key, hash) >= 0 || this.findOld(key, hash) >= 0) { return false; }
+        else {
+            double loadFactor = (double) this.size() / this.capacity();
+            if (loadFactor > MAX_LF) { this.rehash(); }
+
+            this.place(key, data, hash);
+            this.nElems++;
+            return true;
+        }
+    }
+
+    /**
+     * Updates the data in the given key, returning whether it is updated
+     * @return true if the data is updated and false if the key is not found
+     * @throws NullPointerException if key or new data is null
+     */
+    public boolean update(K key, D newData) {
+        if (key == null || newData == null) { throw new NullPointerException(); }
+
+        this.migrate(MIGRATE_STEP);
+        int hash = hash(key);
+        int slot = this.find(key, hash);
+        if (slot >= 0) { this.values[slot] = newData; }
+        else {
+            slot = this.findOld(key, hash);
+            if (slot < 0) { return false; }
+            this.oldValues[slot] = newData;
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the entry of the given key, returning whether it is deleted. Later entries of the probe
+     * run are shifted back one slot, so no tombstone is left behind
+     * @return true if the pair is deleted and false if the key is not found
+     * @throws NullPointerException if key is null
+     */
+    public boolean delete(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        this.migrate(MIGRATE_STEP);
+        int hash = hash(key);
+        int slot = this.find(key, hash);
+        if (slot < 0) {
+            slot = this.findOld(key, hash);
+            if (slot < 0) { return false; }
+            this.oldKeys[slot] = MOVED;
+            this.oldValues[slot] = null;
+            this.nElems--;
+            return true;
+        }
+
+        int next = (slot + 1) & this.mask;
+        while (this.keys[next] != null && this.probeDistance(next) > 0) {
+            this.keys[slot] = this.keys[next];
+            this.values[slot] = this.values[next];
+            this.hashes[slot] = this.hashes[next];
+            slot = next;
+            next = (next + 1) & this.mask;
+        }
+        this.keys[slot] = null;
+        this.values[slot] = null;
+        this.nElems--;
+        return true;
+    }
+
+    /**
+     * Returns the value associated with the given key, returning null if key is not found
+     * @return true key's data or null if the key is already present
+     * @throws NullPointerException if key is null
+     */
+    public D lookup(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        this.migrate(MIGRATE_STEP);
+        int hash = hash(key);
+        int slot = this.find(key, hash);
+        if (slot >= 0) { return (D) this.values[slot]; }
+
+        slot = this.findOld(key, hash);
+        return slot < 0 ? null : (D) this.oldValues[slot];
+    }
+
+    /**
+     * Returns the total number of entries stored in the hash table
+     * @return the number of entries currently in the table
+     */
+    public int size() { return this.nElems; }
+
+    /**
+     * Returns the total capacity of the hash table. The slot arrays are rounded up to a power of two,
+     * so they are never smaller than this
+     * @return the the capacity of the table
+     */
+    public int capacity() { return this.capacity; }
+
+    /**
+     * Returns the mixed hash code of the key
+     * @return the cached hash of the key
+     */
+    private static int hash(Object key) { return mix(key.hashCode()); }
+
+    /**
+     * Mixes every bit of a hash into the low bits used to pick a slot or bucket. A plain shift-xor leaves
+     * structured keys, such as multiples of 65537, in a few long probe runs. Shared by every hashed index
+     * in the package
+     * @return the mixed hash
+     */
+    static int mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Returns how far the entry in the given slot sits from its home slot
+     */
+    private int probeDistance(int slot) { return (slot - this.hashes[slot]) & this.mask; }
+
+    /**
+     * Walks the probe sequence of the key, comparing cached hashes before keys. Robin Hood ordering
+     * lets the search stop as soon as it passes an entry closer to its home than the key would be
+     * @return the slot holding the key, or -1 if the key is not found
+     */
+    private int find(Object key, int hash) {
+        int slot = hash & this.mask;
+        for (int dist = 0; ; dist++) {
+            Object curr = this.keys[slot];
+            if (curr == null || this.probeDistance(slot) < dist) {
+                if (Metrics.ENABLED) { Metrics.HASH_TABLE.recordProbe(dist); }
+                return -1;
+            }
+            if (this.hashes[slot] == hash && curr.equals(key)) {
+                if (Metrics.ENABLED) { Metrics.HASH_TABLE.recordProbe(dist); }
+                return slot;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    /**
+     * Searches the table being drained, whose layout is frozen, skipping MOVED slots
+     * @return the old slot holding the key, or -1 if no rehash is in progress or the key is not found
+     */
+    private int findOld(Object key, int hash) {
+        if (this.oldKeys == null) { return -1; }
+
+        int slot = hash & this.oldMask;
+        for (int dist = 0; ; dist++) {
+            Object curr = this.oldKeys[slot];
+            if (curr == null || ((slot - this.oldHashes[slot]) & this.oldMask) < dist) { return -1; }
+            if (curr != MOVED && this.oldHashes[slot] == hash && curr.equals(key)) { return slot; }
+            slot = (slot + 1) & this.oldMask;
+        }
+    }
+
+    /**
+     * Places an entry known to be absent, swapping it with any entry closer to its home slot
+     */
+    private void place(Object key, Object data, int hash) {
+        int slot = hash & this.mask;
+        for (int dist = 0; ; dist++) {
+            if (this.keys[slot] == null) {
+                this.keys[slot] = key;
+                this.values[slot] = data;
+                this.hashes[slot] = hash;
+                return;
+            }
+
+            int currDist = this.probeDistance(slot);
+            if (currDist < dist) {
+                Object swapKey = this.keys[slot], swapData = this.values[slot];
+                int swapHash = this.hashes[slot];
+                this.keys[slot] = key;
+                this.values[slot] = data;
+                this.hashes[slot] = hash;
+                key = swapKey;
+                data = swapData;
+                hash = swapHash;
+                dist = currDist;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+    }
+
+    private void allocate(int slots) {
+        this.keys = new Object[slots];
+        this.values = new Object[slots];
+        this.hashes = new int[slots];
+        this.mask = slots - 1;
+    }
+
+    private static int slotsFor(int capacity) {
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Doubles the capacity of the table. Existing entries stay in the old arrays and are moved over a few
+     * slots at a time by later operations, so no single call pays for the whole table
+     */
+    private void rehash() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        // a rehash still in progress is finished first
+        this.migrate(Integer.MAX_VALUE);
+
+        this.oldKeys = this.keys;
+        this.oldValues = this.values;
+        this.oldHashes = this.hashes;
+        this.oldMask = this.mask;
+        this.oldCursor = 0;
+
+        this.capacity *= 2;
+        this.allocate(slotsFor(this.capacity));
+
+        if (Metrics.ENABLED) {
+            this.rehashStart = start;
+            Metrics.HASH_TABLE.recordRehash(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Moves up to the given number of old slots into the current table with their cached hashes. The
+     * entries are known to be unique, so no duplicate check is needed
+     */
+    private void migrate(int nSlots) {
+        if (this.oldKeys == null) { return; }
+
+        int end = (int) Math.min(this.oldKeys.length, (long) this.oldCursor + nSlots);
+        for (int i = this.oldCursor; i < end; i++) {
+            Object key = this.oldKeys[i];
+            if (key != null && key != MOVED) {
+                this.place(key, this.oldValues[i], this.oldHashes[i]);
+                this.oldKeys[i] = MOVED;
+                this.oldValues[i] = null;
+            }
+        }
+        this.oldCursor = end;
+
+        if (end == this.oldKeys.length) {
+            this.oldKeys = this.oldValues = null;
+            this.oldHashes = null;
+            if (Metrics.ENABLED) { Metrics.HASH_TABLE.recordMigration(System.nanoTime() - this.rehashStart); }
+        }
+    }
+
+}
@@ -1,6 +1,11 @@
+package fadaf;
+
 import org.junit.*;
 import static org.junit.Assert.*;
 
+import java.util.HashMap;
+import java.util.Random;
+
 public class HashTableTest {
 
     HashTable table1;
@@ -105,4 +110,66 @@ public class HashTableTest {
         assertFalse(table2.delete("FF"));
     }
 
+    @Test
+    public void testDeleteKeepsProbeRunsReachable() {
+        // keys 16 apart share a home slot, so deletes must shift the rest of the run back
+        HashTable<Integer, Integer> table = new HashTable<>(16);
+        for (int i = 0; i < 10; i++) { assertTrue(table.insert(i * 16, i)); }
+        for (int i = 0; i < 10; i += 2) { assertTrue(table.delete(i * 16)); }
+        for (int i = 0; i < 10; i++) {
+            if (i % 2 == 0) { assertEquals(null, table.lookup(i * 16)); }
+            else { assertEquals(Integer.valueOf(i), table.lookup(i * 16)); }
+        }
+        assertEquals(5, table.size());
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        HashTable<Integer, Integer> table = new HashTable<>(10);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(5000);
+            switch (random.nextInt(3)) {
+                case 0: assertEquals(expected.putIfAbsent(key, i) == null, table.insert(key, i)); break;
+                case 1: assertEquals(expected.remove(key) != null, table.delete(key)); break;
+                default: assertEquals(expected.get(key), table.lookup(key));
+            }
+        }
+        assertEquals(expected.size(), table.size());
+    }
+
+    @Test
+    public void testOperationsDuringIncrementalRehash() {
+        HashTable<Integer, Integer> table = new HashTable<>(64);
+        for (int i = 0; i < 43; i++) { assertTrue(table.insert(i, i)); }
+        assertEquals(64, table.capacity());
+
+        // triggers a rehash, leaving most entries in the old table for a few operations
+        assertTrue(table.insert(43, 43));
+        assertEquals(128, table.capacity());
+        assertFalse(table.insert(5, -1));
+        assertTrue(table.update(40, -40));
+        assertTrue(table.delete(41));
+        assertFalse(table.delete(41));
+
+        assertEquals(43, table.size());
+        for (int i = 0; i < 44; i++) {
+            if (i == 41) { assertEquals(null, table.lookup(i)); }
+            else if (i == 40) { assertEquals(Integer.valueOf(-40), table.lookup(i)); }
+            else { assertEquals(Integer.valueOf(i), table.lookup(i)); }
+        }
+    }
+
+    @Test (timeout = 5000)
+    public void testStrideKeysSpreadAcrossSlots() {
+        // multiples of 65537 once shared their low hash bits, turning every probe into a scan
+        HashTable<Integer, Integer> table = new HashTable<>(10);
+        for (int i = 0; i < 1 << 15; i++) { assertTrue(table.insert(i * 65537, i)); }
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 1 << 15; i++) { assertEquals(Integer.valueOf(i), table.lookup(i * 65537)); }
+        }
+        assertEquals(1 << 15, table.size());
+    }
+
 }
@@ -0,0 +1,61 @@
+package fadaf;
+
+import java.util.Arrays;
+
+/*
+ * FADAF specialized for int keys. It shares LongFADAF's primitive tree and index through PrimitiveFADAF but
+ * keeps its keys in an int[], half the key memory of storing them widened.
+ */
+public class IntFADAF<D> extends PrimitiveFADAF<D> {
+
+    private int[] keys;
+
+    public IntFADAF(int capacity) {
+        super(capacity);
+        this.keys = new int[capacity];
+    }
+
+    public boolean insert(int key, D data, int nCopy) { return this.insertKey(key, data, nCopy); }
+
+    public int lookup(int key) { return this.lookupKey(key); }
+
+    public boolean remove(int key, int nCopy) { return this.removeKey(key, nCopy); }
+
+    public boolean removeAll(int key) { return this.removeAllKeys(key); }
+
+    public boolean update(int key, D newData) { return this.updateKey(key, newData); }
+
+    public int[] getAllKeys(boolean allowDuplicate) {
+        int[] all = new int[allowDuplicate ? this.size() : this.nUniqueKeys()];
+        int i = 0;
+        for (int node = this.first(); node != NIL; node = this.successor(node)) {
+            int copies = allowDuplicate ? this.counts[node] : 1;
+            while (copies-- > 0) { all[i++] = this.keys[node]; }
+        }
+        return all;
+    }
+
+    public int[] getUniqueKeysInRange(int lower, int upper) {
+        // descends to the first key above lower, then walks successors until upper
+        int node = this.firstAbove(lower);
+        int n = 0;
+        for (int i = node; i != NIL && this.keys[i] < upper; i = this.successor(i)) { n++; }
+        int[] range = new int[n];
+        for (int i = 0; i < n; i++) {
+            range[i] = this.keys[node];
+            node = this.successor(node);
+        }
+        return range;
+    }
+
+    public int getMinKey() { return this.keys[this.minNode()]; }
+
+    public int getMaxKey() { return this.keys[this.maxNode()]; }
+
+    long key(int node) { return this.keys[node]; }
+
+    void setKey(int node, long key) { this.keys[node] = (int) key; }
+
+    void growKeys(int capacity) { this.keys = Arrays.copyOf(this.keys, capacity); }
+
+}
@@ -0,0 +1,47 @@
+package fadaf;
+
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class IntFADAFTest {
+
+    IntFADAF<Double> fadaf1;
+
+    @Before
+    public void setUp() {
+        fadaf1 = new IntFADAF<>(10);
+
+        int[] keys = {5, Integer.MIN_VALUE, 12, Integer.MAX_VALUE, -1};
+        int[] counts = {2, 1, 3, 1, 4};
+        for (int i = 0; i < keys.length; i++) { assertTrue(fadaf1.insert(keys[i], 0.5 * i, counts[i])); }
+
+        assertEquals(11, fadaf1.size());
+        assertEquals(5, fadaf1.nUniqueKeys());
+        assertFalse(fadaf1.insert(12, 1.0, 1));
+        assertEquals(4, fadaf1.lookup(12));
+    }
+
+    @Test
+    public void testKeys() {
+        assertEquals(Integer.MIN_VALUE, fadaf1.getMinKey());
+        assertEquals(Integer.MAX_VALUE, fadaf1.getMaxKey());
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -1, 5, 12, Integer.MAX_VALUE}, fadaf1.getAllKeys(false));
+        assertArrayEquals(new int[]{5, 12}, fadaf1.getUniqueKeysInRange(-1, Integer.MAX_VALUE));
+
+        assertTrue(fadaf1.removeAll(Integer.MAX_VALUE));
+        assertTrue(fadaf1.remove(12, 3));
+        assertTrue(fadaf1.update(12, 9.0));
+        assertArrayEquals(new int[]{Integer.MIN_VALUE, -1, -1, -1, -1, 5, 5, 12}, fadaf1.getAllKeys(true));
+    }
+
+    @Test
+    public void testGrowsPastCapacity() {
+        IntFADAF<Integer> fadaf = new IntFADAF<>(10);
+        for (int i = 0; i < 1000; i++) { assertTrue(fadaf.insert(i * 7919 % 1009 - 500, i, 1)); }
+        assertEquals(1000, fadaf.nUniqueKeys());
+        assertEquals(-500, fadaf.getMinKey());
+        for (int i = 0; i < 1000; i++) { assertEquals(1, fadaf.lookup(i * 7919 % 1009 - 500)); }
+    }
+
+}
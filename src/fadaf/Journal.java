@@ -0,0 +1,327 @@
+package fadaf;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log of opaque records, stored as segment files named after the first sequence number (LSN)
+ * they hold. Each record is laid out as
+ *
+ *   payloadLen int, crc32 of lsn and payload int, lsn long, payload
+ *
+ * Appends only copy into a pending buffer. A single flusher thread writes the buffer out and fsyncs it
+ * once per batch, so every writer waiting on the same batch shares one fsync (group commit). A batch is
+ * flushed as soon as it holds maxBatchBytes, and never later than flushIntervalMillis after its first
+ * record, which bounds how long a writer waits.
+ */
+class Journal implements Closeable {
+
+    interface RecordHandler { void handle(long lsn, ByteBuffer payload) throws IOException; }
+
+    static final int RECORD_HEADER = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final long flushIntervalMillis;
+    private final int maxBatchBytes;
+    private final long segmentBytes;
+
+    // guarded by lock
+    private final Object lock = new Object();
+    private final TreeMap<Long, Path> segments; // first lsn -> segment file
+    private ByteBuffer pending, spare;
+    private long firstPendingLsn, lastLsn, durableLsn;
+    private boolean rotateRequested, closed;
+    private boolean rotated; // the last segment was closed by a rotation and takes no more records
+    private IOException failure;
+    private final CRC32 crc = new CRC32();
+    private final ByteBuffer lsnBytes = ByteBuffer.allocate(Long.BYTES);
+
+    // owned by the flusher thread once started
+    private FileChannel channel;
+    private final Thread flusher;
+
+    Journal(Path dir, long flushIntervalMillis, int maxBatchBytes, long segmentBytes) throws IOException {
+        if (flushIntervalMillis < 0 || maxBatchBytes < RECORD_HEADER || segmentBytes < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.dir = Files.createDirectories(dir);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchBytes = maxBatchBytes;
+        this.segmentBytes = segmentBytes;
+        this.pending = ByteBuffer.allocateDirect(maxBatchBytes);
+        this.spare = ByteBuffer.allocateDirect(maxBatchBytes);
+
+        this.segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+                    this.segments.put(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())), file);
+                }
+            });
+        }
+
+        // scans every record once, cutting off a torn write at the end of the last segment
+        this.lastLsn = this.scan(Long.MAX_VALUE, null);
+        this.durableLsn = this.lastLsn;
+        if (!this.segments.isEmpty() && Files.size(this.segments.lastEntry().getValue()) == 0) {
+            Files.delete(this.segments.pollLastEntry().getValue());
+        }
+        if (!this.segments.isEmpty()) {
+            this.channel = FileChannel.open(this.segments.lastEntry().getValue(), StandardOpenOption.WRITE);
+            this.channel.position(this.channel.size());
+        }
+
+        this.flusher = new Thread(this::flushLoop, "journal-flusher-" + dir.getFileName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /* calls the handler for every record after the given lsn, in order, returning the last lsn in the journal */
+    long replay(long afterLsn, RecordHandler handler) throws IOException {
+        synchronized (this.lock) {
+            if (this.lastLsn > this.durableLsn) { throw new IllegalStateException("replay after append"); }
+        }
+        return this.scan(afterLsn, handler);
+    }
+
+    /* makes the next lsn follow the given one, for when a snapshot covers records no longer in the journal */
+    void advanceTo(long lsn) {
+        synchronized (this.lock) {
+            if (lsn > this.lastLsn) { this.lastLsn = this.durableLsn = lsn; }
+        }
+    }
+
+    long lastLsn() {
+        synchronized (this.lock) { return this.lastLsn; }
+    }
+
+    /* queues the payload's remaining bytes as the next record, returning its lsn. does not wait for the fsync */
+    long append(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        synchronized (this.lock) {
+            // waits for the flusher to take the batch if this record does not fit
+            while (this.pending.remaining() < RECORD_HEADER + length) {
+                this.checkOpen();
+                if (this.pending.position() == 0) { this.pending = grow(this.pending, RECORD_HEADER + length); }
+                else {
+                    this.lock.notifyAll();
+                    this.await();
+                }
+            }
+            this.checkOpen();
+
+            long lsn = ++this.lastLsn;
+            boolean first = this.pending.position() == 0;
+            if (first) { this.firstPendingLsn = lsn; }
+
+            this.crc.reset();
+            this.crc.update(this.lsnBytes.putLong(0, lsn).clear());
+            this.crc.update(payload.duplicate());
+            this.pending.putInt(length).putInt((int) this.crc.getValue()).putLong(lsn).put(payload);
+
+            // wakes the flusher to start a batch, or to write a full one right away
+            if (first || this.pending.position() >= this.maxBatchBytes) { this.lock.notifyAll(); }
+            return lsn;
+        }
+    }
+
+    /* blocks until every record up to the given lsn is on disk */
+    void awaitDurable(long lsn) throws IOException {
+        synchronized (this.lock) {
+            while (this.durableLsn < lsn) {
+                if (this.failure != null) { throw this.failure; }
+                this.await();
+            }
+        }
+    }
+
+    /* starts a new segment for the next batch, and waits until it does so */
+    void rotate() throws IOException {
+        synchronized (this.lock) {
+            this.checkOpen();
+            this.rotateRequested = true;
+            this.lock.notifyAll();
+            while (this.rotateRequested) {
+                this.checkOpen();
+                this.await();
+            }
+        }
+    }
+
+    /* deletes every segment whose records are all at or before the given lsn, except the one being written */
+    void truncateThrough(long lsn) throws IOException {
+        List<Path> deletable = new ArrayList<>();
+        synchronized (this.lock) {
+            while (!this.segments.isEmpty()) {
+                Long next = this.segments.higherKey(this.segments.firstKey());
+                boolean covered = next != null ? next - 1 <= lsn : this.rotated && this.durableLsn <= lsn;
+                if (!covered) { break; }
+                deletable.add(this.segments.pollFirstEntry().getValue());
+            }
+        }
+        for (Path segment : deletable) { Files.deleteIfExists(segment); }
+    }
+
+    /* flushes everything appended so far and stops the flusher */
+    @Override
+    public void close() throws IOException {
+        synchronized (this.lock) {
+            if (this.closed) { return; }
+            this.closed = true;
+            this.lock.notifyAll();
+        }
+        try {
+            this.flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (this.channel != null) { this.channel.close(); }
+        synchronized (this.lock) {
+            if (this.failure != null) { throw this.failure; }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (this.failure != null) { throw this.failure; }
+        if (this.closed) { throw new IOException("journal closed"); }
+    }
+
+    private void await() throws IOException {
+        try {
+            this.lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(needed, buffer.capacity() * 2));
+        buffer.flip();
+        return bigger.put(buffer);
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                ByteBuffer batch;
+                long firstLsn, batchLsn;
+                boolean rotate;
+                synchronized (this.lock) {
+                    while (this.pending.position() == 0 && !this.closed && !this.rotateRequested) { this.lock.wait(); }
+                    // lets more writers join the batch, up to the flush interval
+                    long deadline = System.currentTimeMillis() + this.flushIntervalMillis;
+                    long wait;
+                    while (!this.closed && !this.rotateRequested && this.pending.position() < this.maxBatchBytes
+                            && (wait = deadline - System.currentTimeMillis()) > 0) {
+                        this.lock.wait(wait);
+                    }
+                    if (this.pending.position() == 0 && this.closed) { return; }
+
+                    batch = this.pending;
+                    this.pending = this.spare;
+                    this.spare = null;
+                    firstLsn = this.firstPendingLsn;
+                    batchLsn = this.lastLsn;
+                    rotate = this.rotateRequested;
+                    this.lock.notifyAll();
+                }
+
+                // a rotation closes the segment, so the next batch starts a new one
+                if (rotate && this.channel != null) {
+                    this.channel.close();
+                    this.channel = null;
+                    synchronized (this.lock) { this.rotated = true; }
+                }
+
+                batch.flip();
+                if (batch.hasRemaining()) {
+                    if (this.channel == null || this.channel.size() >= this.segmentBytes) { this.startSegment(firstLsn); }
+                    while (batch.hasRemaining()) { this.channel.write(batch); }
+                    this.channel.force(false);
+                }
+                batch.clear();
+
+                synchronized (this.lock) {
+                    this.spare = batch;
+                    this.durableLsn = Math.max(this.durableLsn, batchLsn);
+                    if (rotate) { this.rotateRequested = false; }
+                    this.lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this.lock) {
+                this.failure = e;
+                this.lock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            synchronized (this.lock) {
+                this.failure = new InterruptedIOException();
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private void startSegment(long firstLsn) throws IOException {
+        if (this.channel != null) { this.channel.close(); }
+        Path segment = this.dir.resolve(String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX));
+        this.channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        synchronized (this.lock) {
+            this.segments.put(firstLsn, segment);
+            this.rotated = false;
+        }
+    }
+
+    // walks every record in lsn order, handing those after afterLsn to the handler. returns the last lsn
+    private long scan(long afterLsn, RecordHandler handler) throws IOException {
+        long last = 0;
+        List<Path> files;
+        synchronized (this.lock) { files = new ArrayList<>(this.segments.values()); }
+
+        for (int i = 0; i < files.size(); i++) {
+            boolean isLast = i == files.size() - 1;
+            try (FileChannel file = FileChannel.open(files.get(i), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer in = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                int good = 0;
+                while (in.remaining() >= RECORD_HEADER) {
+                    int length = in.getInt(good);
+                    if (length < 0 || length > in.limit() - good - RECORD_HEADER) { break; }
+                    long lsn = in.getLong(good + 2 * Integer.BYTES);
+                    ByteBuffer payload = in.duplicate().position(good + RECORD_HEADER).limit(good + RECORD_HEADER + length);
+
+                    CRC32 crc = new CRC32();
+                    crc.update(in.duplicate().position(good + 2 * Integer.BYTES).limit(good + RECORD_HEADER));
+                    crc.update(payload.duplicate());
+                    if ((int) crc.getValue() != in.getInt(good + Integer.BYTES) || lsn <= last) { break; }
+
+                    if (lsn > afterLsn && handler != null) { handler.handle(lsn, payload.slice()); }
+                    last = lsn;
+                    good += RECORD_HEADER + length;
+                    in.position(good);
+                }
+
+                if (good < file.size()) {
+                    if (!isLast) { throw new IOException("corrupt journal segment: " + files.get(i)); }
+                    // torn write from a crash, never acknowledged to a writer
+                    if (handler == null) { file.truncate(good); }
+                }
+            }
+        }
+        return last;
+    }
+
+}
@@ -0,0 +1,62 @@
+package fadaf;
+
+import java.util.Arrays;
+
+/*
+ * FADAF specialized for long keys. The tree and the hash index live in parallel primitive arrays indexed by
+ * node number, so keys are never boxed and no object is allocated per key. Arrays only grow when the number
+ * of unique keys outgrows them; insert, lookup and remove are allocation-free otherwise. See PrimitiveFADAF.
+ */
+public class LongFADAF<D> extends PrimitiveFADAF<D> {
+
+    private long[] keys;
+
+    public LongFADAF(int capacity) {
+        super(capacity);
+        this.keys = new long[capacity];
+    }
+
+    public boolean insert(long key, D data, int nCopy) { return this.insertKey(key, data, nCopy); }
+
+    public int lookup(long key) { return this.lookupKey(key); }
+
+    public boolean remove(long key, int nCopy) { return this.removeKey(key, nCopy); }
+
+    public boolean removeAll(long key) { return this.removeAllKeys(key); }
+
+    public boolean update(long key, D newData) { return this.updateKey(key, newData); }
+
+    public long[] getAllKeys(boolean allowDuplicate) {
+        long[] all = new long[allowDuplicate ? this.size() : this.nUniqueKeys()];
+        int i = 0;
+        for (int node = this.first(); node != NIL; node = this.successor(node)) {
+            int copies = allowDuplicate ? this.counts[node] : 1;
+            while (copies-- > 0) { all[i++] = this.keys[node]; }
+        }
+        return all;
+    }
+
+    public long[] getUniqueKeysInRange(long lower, long upper) {
+        // descends to the first key above lower, then walks successors until upper
+        int node = this.firstAbove(lower);
+        int n = 0;
+        for (int i = node; i != NIL && this.keys[i] < upper; i = this.successor(i)) { n++; }
+        long[] range = new long[n];
+        for (int i = 0; i < n; i++) {
+            range[i] = this.keys[node];
+            node = this.successor(node);
+        }
+        return range;
+    }
+
+    public long getMinKey() { return this.keys[this.minNode()]; }
+
+    public long getMaxKey() { return this.keys[this.maxNode()]; }
+
+    long key(int node) { return this.keys[node]; }
+
+    void setKey(int node, long key) { this.keys[node] = key; }
+
+    void growKeys(int capacity) { this.keys = Arrays.copyOf(this.keys, capacity); }
+
+}
@@ -0,0 +1,104 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class LongFADAFTest {
+
+    LongFADAF<String> fadaf1;
+
+    @Before
+    public void setUp() {
+        fadaf1 = new LongFADAF<>(10);
+
+        long[] keys = {40, -7, Long.MAX_VALUE, 3, Long.MIN_VALUE};
+        int[] counts = {1, 2, 4, 1, 3};
+        for (int i = 0; i < keys.length; i++) { assertTrue(fadaf1.insert(keys[i], "d" + i, counts[i])); }
+
+        assertFalse(fadaf1.insert(3, "again", 2));
+        assertEquals(13, fadaf1.size());
+        assertEquals(5, fadaf1.nUniqueKeys());
+        assertEquals(Long.MIN_VALUE, fadaf1.getMinKey());
+        assertEquals(Long.MAX_VALUE, fadaf1.getMaxKey());
+
+        assertEquals(3, fadaf1.lookup(3));
+        assertEquals(0, fadaf1.lookup(4));
+        assertTrue(fadaf1.update(-7, "new"));
+        assertFalse(fadaf1.update(8, "new"));
+
+        assertTrue(fadaf1.remove(3, 1));
+        assertEquals(2, fadaf1.lookup(3));
+        assertTrue(fadaf1.remove(Long.MAX_VALUE, 10));
+        assertFalse(fadaf1.remove(Long.MAX_VALUE, 1));
+        assertTrue(fadaf1.removeAll(Long.MIN_VALUE));
+        assertFalse(fadaf1.removeAll(Long.MIN_VALUE));
+
+        assertEquals(5, fadaf1.size());
+        assertEquals(3, fadaf1.nUniqueKeys());
+        assertEquals(40, fadaf1.getMaxKey());
+    }
+
+    @Test
+    public void testKeys() {
+        assertArrayEquals(new long[]{-7, -7, 3, 3, 40}, fadaf1.getAllKeys(true));
+        assertArrayEquals(new long[]{-7, 3, 40}, fadaf1.getAllKeys(false));
+        assertArrayEquals(new long[]{3}, fadaf1.getUniqueKeysInRange(-7, 40));
+        assertArrayEquals(new long[]{-7, 3, 40}, fadaf1.getUniqueKeysInRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        assertArrayEquals(new long[]{}, fadaf1.getUniqueKeysInRange(41, 50));
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        LongFADAF<Integer> fadaf = new LongFADAF<>(10);
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            long key = random.nextInt(3000) - 1500;
+            int nCopy = 1 + random.nextInt(3);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(!expected.containsKey(key), fadaf.insert(key, i, nCopy));
+                    expected.merge(key, nCopy, Integer::sum);
+                    break;
+                case 1:
+                    assertEquals(expected.containsKey(key), fadaf.remove(key, nCopy));
+                    if (expected.containsKey(key)) {
+                        int left = expected.get(key) - nCopy;
+                        if (left > 0) { expected.put(key, left); } else { expected.remove(key); }
+                    }
+                    break;
+                default: assertEquals((int) expected.getOrDefault(key, 0), fadaf.lookup(key));
+            }
+        }
+
+        assertEquals(expected.size(), fadaf.nUniqueKeys());
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), fadaf.size());
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), fadaf.getAllKeys(false));
+        assertEquals((long) expected.firstKey(), fadaf.getMinKey());
+        assertEquals((long) expected.lastKey(), fadaf.getMaxKey());
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new LongFADAF<String>(9); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertDataThrowsNPE() { fadaf1.insert(1, null, 2); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert(1, "d", 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testUpdateDataNPE() { fadaf1.update(3, null); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testRemoveThrowsIAE() { fadaf1.remove(3, 0); }
+
+    @Test (expected = NoSuchElementException.class)
+    public void testMinKeyThrowsNSEE() { new LongFADAF<String>(10).getMinKey(); }
+
+}
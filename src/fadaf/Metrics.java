@@ -0,0 +1,303 @@
+package fadaf;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Hot-path counters for HashTable, DAFTree and FADAF, published as JMX MBeans under the "fadaf" domain.
+ * Turned on with -Dfadaf.metrics=true. ENABLED is a static final constant, so when it is off the JIT folds
+ * every "if (Metrics.ENABLED)" guard away and instrumented code runs exactly as uninstrumented code.
+ *
+ * Counters are shared by every instance of a class and are LongAdders, so threads recording at once do not
+ * contend. Distributions are kept as histograms with four buckets per power of two, which bounds the error
+ * of a reported percentile to a quarter of its value.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("fadaf.metrics");
+
+    public static final HashTableStats HASH_TABLE = new HashTableStats();
+    public static final TreeStats TREE = new TreeStats();
+    public static final FADAFStats FADAF = new FADAFStats();
+
+    static {
+        if (ENABLED) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                server.registerMBean(HASH_TABLE, new ObjectName("fadaf:type=HashTable"));
+                server.registerMBean(TREE, new ObjectName("fadaf:type=DAFTree"));
+                server.registerMBean(FADAF, new ObjectName("fadaf:type=FADAF"));
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private Metrics() { }
+
+    /* ---------------- histogram ---------------- */
+
+    // counts of non-negative values, bucketed by their top three significant bits
+    static final class Histogram {
+        private static final int SUB_BITS = 2;
+        private final LongAdder[] buckets = new LongAdder[(64 << SUB_BITS) + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < this.buckets.length; i++) { this.buckets[i] = new LongAdder(); }
+        }
+
+        void record(long value) {
+            value = Math.max(0, value);
+            this.buckets[bucket(value)].increment();
+            this.count.increment();
+            this.sum.add(value);
+        }
+
+        // values below 2^SUB_BITS get their own bucket, larger ones share one per quarter power of two
+        private static int bucket(long value) {
+            if (value < (1 << SUB_BITS)) { return (int) value; }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return ((shift + 1) << SUB_BITS) + (int) ((value >>> shift) & ((1 << SUB_BITS) - 1));
+        }
+
+        // largest value that falls into the bucket
+        private static long upperBound(int bucket) {
+            if (bucket < (1 << SUB_BITS)) { return bucket; }
+            int shift = (bucket >> SUB_BITS) - 1;
+            long sub = (bucket & ((1 << SUB_BITS) - 1)) | (1 << SUB_BITS);
+            return ((sub + 1) << shift) - 1;
+        }
+
+        long count() { return this.count.sum(); }
+
+        double mean() {
+            long n = this.count.sum();
+            return n == 0 ? 0 : (double) this.sum.sum() / n;
+        }
+
+        /* upper bound of the bucket holding the p-th percentile, 0 if nothing was recorded */
+        long percentile(double p) {
+            long n = this.count.sum();
+            if (n == 0) { return 0; }
+
+            long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+            long seen = 0;
+            for (int i = 0; i < this.buckets.length; i++) {
+                seen += this.buckets[i].sum();
+                if (seen >= rank) { return upperBound(i); }
+            }
+            return upperBound(this.buckets.length - 1);
+        }
+
+        /* counts per bucket up to the last non-empty one, for small-valued distributions like probe lengths */
+        long[] counts() {
+            int last = this.buckets.length - 1;
+            while (last >= 0 && this.buckets[last].sum() == 0) { last--; }
+            long[] counts = new long[last + 1];
+            for (int i = 0; i <= last; i++) { counts[i] = this.buckets[i].sum(); }
+            return counts;
+        }
+
+        void reset() {
+            for (LongAdder bucket : this.buckets) { bucket.reset(); }
+            this.count.reset();
+            this.sum.reset();
+        }
+    }
+
+    /* ---------------- HashTable ---------------- */
+
+    public interface HashTableStatsMBean {
+        long getLookups();
+        double getMeanProbeLength();
+        long getP99ProbeLength();
+        long getMaxProbeLength();
+        /* lookups per probe length bucket. lengths up to 3 have a bucket each, longer ones a quarter power of two */
+        long[] getProbeLengthHistogram();
+        long getRehashCount();
+        /* time insert spent starting rehashes, the only part of a rehash that is not spread over later calls */
+        double getRehashPauseMillisTotal();
+        double getRehashPauseMillisMax();
+        /* time from the start of each rehash until the old table was fully drained */
+        double getRehashMigrationMillisTotal();
+        void reset();
+    }
+
+    public static final class HashTableStats implements HashTableStatsMBean {
+        private final Histogram probes = new Histogram();
+        private final LongAdder rehashes = new LongAdder();
+        private final LongAdder pauseNanos = new LongAdder();
+        private final LongAccumulator maxPauseNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder migrationNanos = new LongAdder();
+
+        void recordProbe(int length) { this.probes.record(length); }
+
+        void recordRehash(long pauseNanos) {
+            this.rehashes.increment();
+            this.pauseNanos.add(pauseNanos);
+            this.maxPauseNanos.accumulate(pauseNanos);
+        }
+
+        void recordMigration(long nanos) { this.migrationNanos.add(nanos); }
+
+        public long getLookups() { return this.probes.count(); }
+
+        public double getMeanProbeLength() { return this.probes.mean(); }
+
+        public long getP99ProbeLength() { return this.probes.percentile(99); }
+
+        public long getMaxProbeLength() { return this.probes.percentile(100); }
+
+        public long[] getProbeLengthHistogram() { return this.probes.counts(); }
+
+        public long getRehashCount() { return this.rehashes.sum(); }
+
+        public double getRehashPauseMillisTotal() { return this.pauseNanos.sum() / 1e6; }
+
+        public double getRehashPauseMillisMax() { return this.maxPauseNanos.get() / 1e6; }
+
+        public double getRehashMigrationMillisTotal() { return this.migrationNanos.sum() / 1e6; }
+
+        public void reset() {
+            this.probes.reset();
+            this.rehashes.reset();
+            this.pauseNanos.reset();
+            this.maxPauseNanos.reset();
+            this.migrationNanos.reset();
+        }
+    }
+
+    /* ---------------- DAFTree ---------------- */
+
+    public interface TreeStatsMBean {
+        /* height of the most recently changed tree */
+        int getHeight();
+        int getMaxHeight();
+        long getSearches();
+        double getMeanSearchDepth();
+        long getP99SearchDepth();
+        long getRotations();
+        void reset();
+    }
+
+    public static final class TreeStats implements TreeStatsMBean {
+        private volatile int height;
+        private final LongAccumulator maxHeight = new LongAccumulator(Math::max, 0);
+        private final Histogram depths = new Histogram();
+        private final LongAdder rotations = new LongAdder();
+
+        void recordHeight(int height) {
+            this.height = height;
+            this.maxHeight.accumulate(height);
+        }
+
+        void recordSearch(int depth) { this.depths.record(depth); }
+
+        void recordRotation() { this.rotations.increment(); }
+
+        public int getHeight() { return this.height; }
+
+        public int getMaxHeight() { return (int) this.maxHeight.get(); }
+
+        public long getSearches() { return this.depths.count(); }
+
+        public double getMeanSearchDepth() { return this.depths.mean(); }
+
+        public long getP99SearchDepth() { return this.depths.percentile(99); }
+
+        public long getRotations() { return this.rotations.sum(); }
+
+        public void reset() {
+            this.height = 0;
+            this.maxHeight.reset();
+            this.depths.reset();
+            this.rotations.reset();
+        }
+    }
+
+    /* ---------------- FADAF ---------------- */
+
+    public enum Op { INSERT, LOOKUP, REMOVE, REMOVE_ALL, UPDATE, RANGE }
+
+    public interface FADAFStatsMBean {
+        long getInserts();
+        long getLookups();
+        long getRemoves();
+        long getRemoveAlls();
+        long getUpdates();
+        long getRangeQueries();
+        /* operations of every kind per second since the counters were last reset */
+        double getOperationsPerSecond();
+        /* latency percentiles over every operation kind, in microseconds */
+        double getLatencyMicrosP50();
+        double getLatencyMicrosP99();
+        double getLatencyMicrosP999();
+        double getLatencyMicrosMax();
+        /* p99 latency of each kind, indexed like Metrics.Op */
+        double[] getLatencyMicrosP99ByOperation();
+        void reset();
+    }
+
+    public static final class FADAFStats implements FADAFStatsMBean {
+        private final Histogram[] latencies = new Histogram[Op.values().length];
+        private final Histogram all = new Histogram();
+        private volatile long since = System.nanoTime();
+
+        FADAFStats() {
+            for (int i = 0; i < this.latencies.length; i++) { this.latencies[i] = new Histogram(); }
+        }
+
+        /* records an operation that started at the given System.nanoTime() */
+        void record(Op op, long startNanos) {
+            long elapsed = System.nanoTime() - startNanos;
+            this.latencies[op.ordinal()].record(elapsed);
+            this.all.record(elapsed);
+        }
+
+        private long count(Op op) { return this.latencies[op.ordinal()].count(); }
+
+        public long getInserts() { return this.count(Op.INSERT); }
+
+        public long getLookups() { return this.count(Op.LOOKUP); }
+
+        public long getRemoves() { return this.count(Op.REMOVE); }
+
+        public long getRemoveAlls() { return this.count(Op.REMOVE_ALL); }
+
+        public long getUpdates() { return this.count(Op.UPDATE); }
+
+        public long getRangeQueries() { return this.count(Op.RANGE); }
+
+        public double getOperationsPerSecond() {
+            double seconds = (System.nanoTime() - this.since) / 1e9;
+            return seconds == 0 ? 0 : this.all.count() / seconds;
+        }
+
+        public double getLatencyMicrosP50() { return this.all.percentile(50) / 1e3; }
+
+        public double getLatencyMicrosP99() { return this.all.percentile(99) / 1e3; }
+
+        public double getLatencyMicrosP999() { return this.all.percentile(99.9) / 1e3; }
+
+        public double getLatencyMicrosMax() { return this.all.percentile(100) / 1e3; }
+
+        public double[] getLatencyMicrosP99ByOperation() {
+            double[] p99 = new double[this.latencies.length];
+            for (int i = 0; i < p99.length; i++) { p99[i] = this.latencies[i].percentile(99) / 1e3; }
+            return p99;
+        }
+
+        public void reset() {
+            for (Histogram latency : this.latencies) { latency.reset(); }
+            this.all.reset();
+            this.since = System.nanoTime();
+        }
+    }
+
+}
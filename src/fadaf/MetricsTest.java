@@ -0,0 +1,85 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogram() {
+        Metrics.Histogram histogram = new Metrics.Histogram();
+        assertEquals(0, histogram.percentile(50));
+        for (int i = 0; i < 4; i++) { histogram.record(i); }
+        for (int i = 0; i < 96; i++) { histogram.record(1000); }
+
+        assertEquals(100, histogram.count());
+        assertEquals((0 + 1 + 2 + 3 + 96 * 1000) / 100.0, histogram.mean(), 1e-9);
+        assertEquals(0, histogram.percentile(1));
+        assertEquals(3, histogram.percentile(4));
+        // 1000 shares a bucket with every value up to 1023
+        assertEquals(1023, histogram.percentile(50));
+        assertEquals(1023, histogram.percentile(100));
+        assertArrayEquals(new long[]{1, 1, 1, 1}, java.util.Arrays.copyOf(histogram.counts(), 4));
+
+        // every reported percentile is within a quarter of the true value
+        for (long value = 1; value < Long.MAX_VALUE / 4; value = value * 3 + 1) {
+            Metrics.Histogram single = new Metrics.Histogram();
+            single.record(value);
+            assertTrue(single.percentile(50) >= value && single.percentile(50) <= value * 1.25);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void testStats() {
+        Metrics.HashTableStats table = new Metrics.HashTableStats();
+        table.recordProbe(0);
+        table.recordProbe(2);
+        table.recordRehash(2000000);
+        table.recordRehash(1000000);
+        assertEquals(2, table.getLookups());
+        assertEquals(1.0, table.getMeanProbeLength(), 1e-9);
+        assertEquals(2, table.getRehashCount());
+        assertEquals(3.0, table.getRehashPauseMillisTotal(), 1e-9);
+        assertEquals(2.0, table.getRehashPauseMillisMax(), 1e-9);
+
+        Metrics.TreeStats tree = new Metrics.TreeStats();
+        tree.recordHeight(5);
+        tree.recordHeight(4);
+        tree.recordRotation();
+        assertEquals(4, tree.getHeight());
+        assertEquals(5, tree.getMaxHeight());
+        assertEquals(1, tree.getRotations());
+
+        Metrics.FADAFStats fadaf = new Metrics.FADAFStats();
+        fadaf.record(Metrics.Op.INSERT, System.nanoTime());
+        fadaf.record(Metrics.Op.LOOKUP, System.nanoTime() - 5000000);
+        assertEquals(1, fadaf.getInserts());
+        assertEquals(1, fadaf.getLookups());
+        assertTrue(fadaf.getLatencyMicrosMax() >= 5000);
+        assertTrue(fadaf.getLatencyMicrosP99ByOperation()[Metrics.Op.LOOKUP.ordinal()] >= 5000);
+        fadaf.reset();
+        assertEquals(0, fadaf.getLookups());
+    }
+
+    // only runs with -Dfadaf.metrics=true
+    @Test
+    public void testRegisteredWhenEnabled() throws Exception {
+        Assume.assumeTrue(Metrics.ENABLED);
+
+        FADAF<Integer, Integer> fadaf = new FADAF<>(10);
+        for (int i = 0; i < 1000; i++) { fadaf.insert(i, i, 1); }
+        Object lookups = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("fadaf:type=HashTable"), "Lookups");
+        assertTrue((Long) lookups >= 1000);
+        assertTrue(Metrics.TREE.getRotations() > 0);
+        assertTrue(Metrics.FADAF.getInserts() >= 1000);
+    }
+
+}
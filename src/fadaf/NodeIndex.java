@@ -0,0 +1,143 @@
+package fadaf;
+
+/*
+ * Hash index over the nodes of a DAFTree, chained through the nodes themselves. Each node caches its hash
+ * and links to the next node of its bucket, so indexing a key allocates nothing beyond its tree node.
+ * Growing doubles the bucket array, then moves the old chains over a few buckets per operation, like
+ * HashTable does, so no single call pays for the whole index.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+class NodeIndex<K extends Comparable<? super K>, D> {
+
+    private static final int MIN_THRESHOLD = 10;
+    private static final int MIGRATE_STEP = 16; // old buckets moved per operation while growing
+
+    private DAFTree.DAFNode[] buckets;
+    private int mask;
+
+    // buckets being drained by a resize, null when none is in progress. buckets below oldCursor are empty
+    private DAFTree.DAFNode[] oldBuckets;
+    private int oldMask;
+    private int oldCursor;
+    private long resizeStart; // System.nanoTime() when the resize began, only kept when metrics are enabled
+
+    private int nElems;
+
+    NodeIndex(int capacity) {
+        if (capacity < MIN_THRESHOLD) { throw new IllegalArgumentException(); }
+        // keeps the load factor at or under 3/4 until the index first grows
+        int target = (int) Math.min(1 << 30, (long) capacity * 4 / 3);
+        this.buckets = new DAFTree.DAFNode[Integer.highestOneBit(target - 1) << 1];
+        this.mask = this.buckets.length - 1;
+        this.nElems = 0;
+    }
+
+    /* the key's hash code mixed as HashTable mixes it, as the low bits pick the bucket */
+    static int hash(Object key) { return HashTable.mix(key.hashCode()); }
+
+    int size() { return this.nElems; }
+
+    DAFTree<K, D>.DAFNode<K, D> find(K key, int hash) {
+        this.migrate(MIGRATE_STEP);
+        DAFTree.DAFNode node = this.findIn(this.buckets[hash & this.mask], key, hash);
+        if (node == null && this.oldBuckets != null && (hash & this.oldMask) >= this.oldCursor) {
+            node = this.findIn(this.oldBuckets[hash & this.oldMask], key, hash);
+        }
+        return node;
+    }
+
+    /* like find, but never moves chains, so any number of threads may call it while nothing writes */
+    DAFTree<K, D>.DAFNode<K, D> peek(K key, int hash) {
+        DAFTree.DAFNode[] buckets = this.buckets, oldBuckets = this.oldBuckets;
+        DAFTree.DAFNode node = this.findIn(buckets[hash & (buckets.length - 1)], key, hash);
+        if (node == null && oldBuckets != null && (hash & this.oldMask) >= this.oldCursor) {
+            node = this.findIn(oldBuckets[hash & this.oldMask], key, hash);
+        }
+        return node;
+    }
+
+    /* indexes a node whose key is known to be absent */
+    void link(DAFTree<K, D>.DAFNode<K, D> node, int hash) {
+        this.migrate(MIGRATE_STEP);
+        if (this.nElems >= this.buckets.length / 4 * 3) { this.grow(); }
+
+        node.hash = hash;
+        node.nextInBucket = this.buckets[hash & this.mask];
+        this.buckets[hash & this.mask] = node;
+        this.nElems++;
+    }
+
+    /* drops a node known to be indexed */
+    void unlink(DAFTree<K, D>.DAFNode<K, D> node) {
+        if (!this.unlinkFrom(this.buckets, node.hash & this.mask, node)) {
+            this.unlinkFrom(this.oldBuckets, node.hash & this.oldMask, node);
+        }
+        node.nextInBucket = null;
+        this.nElems--;
+    }
+
+    private DAFTree.DAFNode findIn(DAFTree.DAFNode node, K key, int hash) {
+        int length = 0;
+        while (node != null && (node.hash != hash || !key.equals(node.key))) {
+            node = node.nextInBucket;
+            length++;
+        }
+        if (Metrics.ENABLED) { Metrics.HASH_TABLE.recordProbe(length); }
+        return node;
+    }
+
+    private boolean unlinkFrom(DAFTree.DAFNode[] table, int bucket, DAFTree.DAFNode node) {
+        DAFTree.DAFNode prev = null;
+        for (DAFTree.DAFNode curr = table[bucket]; curr != null; curr = curr.nextInBucket) {
+            if (curr == node) {
+                if (prev == null) { table[bucket] = curr.nextInBucket; }
+                else { prev.nextInBucket = curr.nextInBucket; }
+                return true;
+            }
+            prev = curr;
+        }
+        return false;
+    }
+
+    // doubles the buckets, leaving the old chains to be moved by later operations
+    private void grow() {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        // a resize still in progress is finished first
+        this.migrate(Integer.MAX_VALUE);
+
+        this.oldBuckets = this.buckets;
+        this.oldMask = this.mask;
+        this.oldCursor = 0;
+        this.buckets = new DAFTree.DAFNode[this.buckets.length * 2];
+        this.mask = this.buckets.length - 1;
+
+        if (Metrics.ENABLED) {
+            this.resizeStart = start;
+            Metrics.HASH_TABLE.recordRehash(System.nanoTime() - start);
+        }
+    }
+
+    // moves the chains of up to the given number of old buckets, relinking each node by its cached hash
+    private void migrate(int nBuckets) {
+        if (this.oldBuckets == null) { return; }
+
+        int end = (int) Math.min(this.oldBuckets.length, (long) this.oldCursor + nBuckets);
+        for (int i = this.oldCursor; i < end; i++) {
+            DAFTree.DAFNode node = this.oldBuckets[i];
+            while (node != null) {
+                DAFTree.DAFNode next = node.nextInBucket;
+                node.nextInBucket = this.buckets[node.hash & this.mask];
+                this.buckets[node.hash & this.mask] = node;
+                node = next;
+            }
+            this.oldBuckets[i] = null;
+        }
+        this.oldCursor = end;
+
+        if (end == this.oldBuckets.length) {
+            this.oldBuckets = null;
+            if (Metrics.ENABLED) { Metrics.HASH_TABLE.recordMigration(System.nanoTime() - this.resizeStart); }
+        }
+    }
+
+}
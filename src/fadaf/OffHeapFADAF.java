@@ -0,0 +1,755 @@
+package fadaf;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/*
+ * FADAF that keeps its keys and data off the Java heap. Tree nodes are fixed-size records in one direct
+ * buffer, the hash index is an int table in another, and keys and data are stored encoded by their codecs in
+ * a third "arena" buffer, so the heap holds a handful of objects no matter how many keys are stored. Keys are
+ * decoded only to compare them while descending the tree or to return them; lookups compare encoded bytes.
+ *
+ * Each node also keeps the total count of its subtree, so rank, select and countInRange take O(log n) like
+ * FADAF's; both implement FADAFOperations. topK has no index by count here and scans every key per call.
+ *
+ * Buffers grow by doubling when they fill up, or up front through reserve(). close() releases all of them and
+ * the instance is unusable afterwards. Java 17 has no supported call that frees a direct buffer, so close()
+ * uses the JDK's internal cleaner when it is reachable and otherwise leaves the memory to the garbage
+ * collector. Node and arena offsets are ints, which caps a single instance at 2GB of encoded keys and data and
+ * MAX_CAPACITY unique keys.
+ */
+public class OffHeapFADAF<K extends Comparable<? super K>, D> implements FADAFOperations<K, D>, Closeable {
+
+    private static final int NIL = -1;
+    private static final int MIN_THRESHOLD = 10;
+
+    // node record layout, in bytes. removed nodes have a count of 0 and are chained through RIGHT
+    private static final int LEFT = 0, RIGHT = 4, PARENT = 8, HEIGHT = 12, COUNT = 16, HASH = 20;
+    private static final int KEY_POS = 24, KEY_LEN = 28, DATA_POS = 32, DATA_LEN = 36, TOTAL = 40;
+    private static final int NODE_BYTES = 44;
+
+    /* most unique keys one instance holds, as node offsets must fit in an int */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / NODE_BYTES;
+    private static final int DEFAULT_ARENA_BYTES_PER_KEY = 32;
+
+    private final Codec<K> keyCodec;
+    private final Codec<D> dataCodec;
+
+    private ByteBuffer nodes;
+    private int capacity; // nodes that fit in the node buffer
+    private int root;
+    private int freeHead;
+    private int nextNode; // nodes at or above this number have never been used
+
+    // linear probing index from key to node number + 1. 0 marks an empty slot
+    private ByteBuffer slots;
+    private int mask;
+
+    // encoded keys and data. update() may strand the old data, which is reclaimed when the arena grows
+    private ByteBuffer arena;
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    private ByteBuffer scratch; // on-heap buffer the probe key is encoded into
+    private int nElems;
+    private int nUnique;
+    private boolean closed;
+
+    public OffHeapFADAF(int capacity, Codec<K> keyCodec, Codec<D> dataCodec) {
+        this(capacity, (int) Math.min(Integer.MAX_VALUE, (long) capacity * DEFAULT_ARENA_BYTES_PER_KEY), keyCodec,
+             dataCodec);
+    }
+
+    /* capacity is the initial number of unique keys, arenaBytes the initial room for encoded keys and data */
+    public OffHeapFADAF(int capacity, int arenaBytes, Codec<K> keyCodec, Codec<D> dataCodec) {
+        if (keyCodec == null || dataCodec == null) { throw new NullPointerException(); }
+        if (capacity < MIN_THRESHOLD || capacity > MAX_CAPACITY || arenaBytes < 1) {
+            throw new IllegalArgumentException();
+        }
+
+        this.keyCodec = keyCodec;
+        this.dataCodec = dataCodec;
+        this.nodes = ByteBuffer.allocateDirect(capacity * NODE_BYTES);
+        this.capacity = capacity;
+        this.root = this.freeHead = NIL;
+        this.nextNode = 0;
+
+        // keeps the index at most half full
+        this.allocateSlots(Integer.highestOneBit(capacity - 1) << 2);
+        this.arena = ByteBuffer.allocateDirect(arenaBytes);
+        this.arenaUsed = this.arenaGarbage = 0;
+
+        this.scratch = ByteBuffer.allocate(64);
+        this.nElems = this.nUnique = 0;
+    }
+
+    public int size() { return this.nElems; }
+
+    public int nUniqueKeys() { return this.nUnique; }
+
+    /* number of unique keys that fit before the node buffer grows */
+    public int capacity() { return this.capacity; }
+
+    /* bytes currently held outside the heap */
+    public long offHeapBytes() {
+        if (this.closed) { return 0; }
+        return (long) this.nodes.capacity() + this.slots.capacity() + this.arena.capacity();
+    }
+
+    /* grows the buffers so that at least nUniqueKeys keys and arenaBytes of encoded keys and data fit */
+    public void reserve(int nUniqueKeys, int arenaBytes) {
+        this.checkOpen();
+        if (nUniqueKeys < 0 || nUniqueKeys > MAX_CAPACITY || arenaBytes < 0) { throw new IllegalArgumentException(); }
+
+        if (nUniqueKeys > this.capacity) { this.growNodes(nUniqueKeys); }
+        if (arenaBytes > this.arena.capacity()) { this.resizeArena(arenaBytes); }
+    }
+
+    public boolean insert(K key, D data, int nCopy) {
+        this.checkOpen();
+        if (key == null || data == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        // key already present, a single probe is enough
+        int hash = this.encodeProbe(key);
+        int node = this.find(hash);
+        if (node != NIL) {
+            this.setInt(node, COUNT, this.getInt(node, COUNT) + nCopy);
+            this.updateTotals(node);
+            this.nElems += nCopy;
+            return false;
+        }
+
+        node = this.allocate(key, hash, data, nCopy);
+        this.treeInsert(node, key);
+        this.indexInsert(node);
+        this.nElems += nCopy;
+        this.nUnique++;
+        return true;
+    }
+
+    public int lookup(K key) {
+        this.checkOpen();
+        int node = this.find(this.encodeProbe(key));
+        return node == NIL ? 0 : this.getInt(node, COUNT);
+    }
+
+    public boolean remove(K key, int nCopy) {
+        this.checkOpen();
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        int node = this.find(this.encodeProbe(key));
+        // key not present
+        if (node == NIL) { return false; }
+
+        int count = this.getInt(node, COUNT);
+        if (nCopy < count) {
+            this.setInt(node, COUNT, count - nCopy);
+            this.updateTotals(node);
+            this.nElems -= nCopy;
+        } else { this.release(node); }
+        return true;
+    }
+
+    public boolean removeAll(K key) {
+        this.checkOpen();
+        int node = this.find(this.encodeProbe(key));
+        // key not present
+        if (node == NIL) { return false; }
+
+        this.release(node);
+        return true;
+    }
+
+    public boolean update(K key, D newData) {
+        this.checkOpen();
+        if (newData == null) { throw new NullPointerException(); }
+
+        int node = this.find(this.encodeProbe(key));
+        if (node == NIL) { return false; }
+
+        // overwrites in place when the new data fits, otherwise appends it and strands the old bytes
+        int length = this.dataCodec.size(newData);
+        int oldLength = this.getInt(node, DATA_LEN);
+        if (length <= oldLength) {
+            this.arenaGarbage += oldLength - length;
+            this.arena.position(this.getInt(node, DATA_POS));
+        } else {
+            this.ensureArena(length);
+            this.arenaGarbage += oldLength;
+            this.setInt(node, DATA_POS, this.arenaUsed);
+            this.arena.position(this.arenaUsed);
+            this.arenaUsed += length;
+        }
+        this.dataCodec.write(newData, this.arena);
+        this.setInt(node, DATA_LEN, length);
+        return true;
+    }
+
+    /* the data stored with the key, or null if the key is not present */
+    public D getData(K key) {
+        this.checkOpen();
+        int node = this.find(this.encodeProbe(key));
+        return node == NIL ? null : this.readData(node);
+    }
+
+    public List<K> getAllKeys(boolean allowDuplicate) {
+        this.checkOpen();
+        List<K> list = new ArrayList<>(allowDuplicate ? this.nElems : this.nUnique);
+        for (int node = this.first(); node != NIL; node = this.successor(node)) {
+            K key = this.readKey(node);
+            int copies = allowDuplicate ? this.getInt(node, COUNT) : 1;
+            while (copies-- > 0) { list.add(key); }
+        }
+        return list;
+    }
+
+    public List<K> getUniqueKeysInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+
+        List<K> list = new ArrayList<>();
+        Iterator<K> iter = this.uniqueKeysInRange(lower, false, upper, false, false);
+        while (iter.hasNext()) { list.add(iter.next()); }
+        return list;
+    }
+
+    /* the FADAF must not change while the iterator is in use */
+    public Iterator<FADAF.Entry<K, D>> entryIterator() {
+        this.checkOpen();
+        return new Iterator<FADAF.Entry<K, D>>() {
+            int node = first();
+
+            public boolean hasNext() { return this.node != NIL; }
+
+            public FADAF.Entry<K, D> next() {
+                if (this.node == NIL) { throw new NoSuchElementException(); }
+                FADAF.Entry<K, D> entry = new FADAF.Entry<>(readKey(this.node), readData(this.node),
+                                                            getInt(this.node, COUNT));
+                this.node = successor(this.node);
+                return entry;
+            }
+        };
+    }
+
+    /* lazily yields the unique keys between the bounds, starting with an O(log n) seek. null bounds are open.
+       the FADAF must not change while the iterator is in use */
+    public Iterator<K> uniqueKeysInRange(K lower, boolean lowerInclusive, K upper, boolean upperInclusive,
+                                         boolean descending) {
+        this.checkOpen();
+        int direction = descending ? -1 : 1;
+        K start = descending ? upper : lower, end = descending ? lower : upper;
+        boolean startInclusive = descending ? upperInclusive : lowerInclusive;
+        boolean endInclusive = descending ? lowerInclusive : upperInclusive;
+        int forward = descending ? LEFT : RIGHT, backward = descending ? RIGHT : LEFT;
+
+        // descends to the first node past the start bound in iteration order
+        int first = NIL;
+        for (int curr = this.root; curr != NIL; ) {
+            int compared = start == null ? 1 : direction * this.readKey(curr).compareTo(start);
+            if (compared > 0 || (compared == 0 && startInclusive)) {
+                first = curr;
+                curr = this.getInt(curr, backward);
+            } else { curr = this.getInt(curr, forward); }
+        }
+
+        int firstNode = first;
+        return new Iterator<K>() {
+            int node = firstNode;
+            K key = firstNode == NIL ? null : readKey(firstNode);
+
+            public boolean hasNext() {
+                if (this.node == NIL) { return false; }
+                if (end == null) { return true; }
+                int compared = direction * this.key.compareTo(end);
+                return compared < 0 || (compared == 0 && endInclusive);
+            }
+
+            public K next() {
+                if (!this.hasNext()) { throw new NoSuchElementException(); }
+                K next = this.key;
+                this.node = step(this.node, forward, backward);
+                this.key = this.node == NIL ? null : readKey(this.node);
+                return next;
+            }
+        };
+    }
+
+    /* the k most frequent keys, most frequent first and ties in key order. scans every key, O(n log k) */
+    public List<K> topK(int k) {
+        this.checkOpen();
+        if (k < 0) { throw new IllegalArgumentException(); }
+        if (k == 0) { return new ArrayList<>(); }
+
+        // {count, position in key order, node}. the head is the weakest kept: least frequent, then latest
+        PriorityQueue<int[]> top = new PriorityQueue<>(Math.min(k, this.nUnique) + 1,
+                (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(b[1], a[1]));
+        int position = 0;
+        for (int node = this.first(); node != NIL; node = this.successor(node), position++) {
+            int count = this.getInt(node, COUNT);
+            // a later key only displaces one strictly less frequent, so ties keep key order
+            if (top.size() < k) { top.add(new int[]{count, position, node}); }
+            else if (count > top.peek()[0]) {
+                top.poll();
+                top.add(new int[]{count, position, node});
+            }
+        }
+
+        K[] keys = newKeyArray(top.size());
+        for (int i = keys.length - 1; i >= 0; i--) { keys[i] = this.readKey(top.poll()[2]); }
+        return new ArrayList<>(Arrays.asList(keys));
+    }
+
+    public int rank(K key) {
+        this.checkOpen();
+        if (key == null) { throw new NullPointerException(); }
+        return this.countBelow(key, false);
+    }
+
+    public K select(int index) {
+        this.checkOpen();
+        if (index < 0 || index >= this.nElems) { throw new IndexOutOfBoundsException(); }
+
+        int curr = this.root;
+        while (true) {
+            int leftTotal = this.total(this.getInt(curr, LEFT));
+            int count = this.getInt(curr, COUNT);
+            if (index < leftTotal) { curr = this.getInt(curr, LEFT); }
+            else if (index < leftTotal + count) { return this.readKey(curr); }
+            else {
+                index -= leftTotal + count;
+                curr = this.getInt(curr, RIGHT);
+            }
+        }
+    }
+
+    public int countInRange(K lower, K upper) {
+        this.checkOpen();
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+        return Math.max(0, this.countBelow(upper, false) - this.countBelow(lower, true));
+    }
+
+    public K getMinKey() {
+        this.checkOpen();
+        if (this.root == NIL) { return null; }
+        return this.readKey(this.first());
+    }
+
+    public K getMaxKey() {
+        this.checkOpen();
+        if (this.root == NIL) { return null; }
+        int curr = this.root;
+        while (this.getInt(curr, RIGHT) != NIL) { curr = this.getInt(curr, RIGHT); }
+        return this.readKey(curr);
+    }
+
+    /* frees the off-heap buffers. the instance cannot be used afterwards */
+    @Override
+    public void close() {
+        if (this.closed) { return; }
+        this.closed = true;
+
+        free(this.nodes);
+        free(this.slots);
+        free(this.arena);
+        this.nodes = this.slots = this.arena = null;
+        this.nElems = this.nUnique = 0;
+    }
+
+    private void checkOpen() {
+        if (this.closed) { throw new IllegalStateException("closed"); }
+    }
+
+    private int getInt(int node, int field) { return this.nodes.getInt(node * NODE_BYTES + field); }
+
+    private void setInt(int node, int field, int value) { this.nodes.putInt(node * NODE_BYTES + field, value); }
+
+    private K readKey(int node) {
+        this.arena.position(this.getInt(node, KEY_POS));
+        return this.keyCodec.read(this.arena, this.getInt(node, KEY_LEN));
+    }
+
+    private D readData(int node) {
+        this.arena.position(this.getInt(node, DATA_POS));
+        return this.dataCodec.read(this.arena, this.getInt(node, DATA_LEN));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>> K[] newKeyArray(int length) {
+        return (K[]) new Comparable<?>[length];
+    }
+
+    // copies of keys below the given key, or at most it when inclusive
+    private int countBelow(K key, boolean inclusive) {
+        int below = 0;
+        int curr = this.root;
+        while (curr != NIL) {
+            int compared = key.compareTo(this.readKey(curr));
+            if (compared < 0 || (compared == 0 && !inclusive)) { curr = this.getInt(curr, LEFT); }
+            else {
+                below += this.total(this.getInt(curr, LEFT)) + this.getInt(curr, COUNT);
+                if (compared == 0) { break; }
+                curr = this.getInt(curr, RIGHT);
+            }
+        }
+        return below;
+    }
+
+    private int first() {
+        int curr = this.root;
+        if (curr == NIL) { return NIL; }
+        while (this.getInt(curr, LEFT) != NIL) { curr = this.getInt(curr, LEFT); }
+        return curr;
+    }
+
+    private int successor(int node) { return this.step(node, RIGHT, LEFT); }
+
+    // the next node in the direction of the forward child: the successor for RIGHT, the predecessor for LEFT
+    private int step(int node, int forward, int backward) {
+        if (this.getInt(node, forward) != NIL) {
+            node = this.getInt(node, forward);
+            while (this.getInt(node, backward) != NIL) { node = this.getInt(node, backward); }
+            return node;
+        }
+        int up = this.getInt(node, PARENT);
+        while (up != NIL && this.getInt(up, forward) == node) {
+            node = up;
+            up = this.getInt(up, PARENT);
+        }
+        return up;
+    }
+
+    /* ---------------- node and arena storage ---------------- */
+
+    // encodes into the arena before claiming a node, so a codec or arena failure loses no node
+    private int allocate(K key, int hash, D data, int nCopy) {
+        // the probe key is still encoded in scratch
+        int keyLength = this.scratch.limit();
+        int dataLength = this.dataCodec.size(data);
+        this.ensureArena(keyLength + dataLength);
+        int pos = this.arenaUsed;
+        this.arena.position(pos);
+        this.arena.put(this.scratch.duplicate());
+        this.dataCodec.write(data, this.arena);
+
+        int node;
+        if (this.freeHead != NIL) {
+            node = this.freeHead;
+            this.freeHead = this.getInt(node, RIGHT);
+        } else {
+            if (this.nextNode == this.capacity) {
+                if (this.capacity == MAX_CAPACITY) { throw new IllegalStateException("node buffer exceeds 2GB"); }
+                this.growNodes((int) Math.min(MAX_CAPACITY, this.capacity * 2L));
+            }
+            node = this.nextNode++;
+        }
+        this.arenaUsed += keyLength + dataLength;
+
+        this.setInt(node, LEFT, NIL);
+        this.setInt(node, RIGHT, NIL);
+        this.setInt(node, PARENT, NIL);
+        this.setInt(node, HEIGHT, 1);
+        this.setInt(node, COUNT, nCopy);
+        this.setInt(node, TOTAL, nCopy);
+        this.setInt(node, HASH, hash);
+        this.setInt(node, KEY_POS, pos);
+        this.setInt(node, KEY_LEN, keyLength);
+        this.setInt(node, DATA_POS, pos + keyLength);
+        this.setInt(node, DATA_LEN, dataLength);
+        return node;
+    }
+
+    // unlinks the node from the tree and the index, then returns it to the free list
+    private void release(int node) {
+        this.indexDelete(node);
+        this.treeRemove(node);
+        this.nElems -= this.getInt(node, COUNT);
+        this.nUnique--;
+        this.arenaGarbage += this.getInt(node, KEY_LEN) + this.getInt(node, DATA_LEN);
+
+        this.setInt(node, COUNT, 0);
+        this.setInt(node, RIGHT, this.freeHead);
+        this.freeHead = node;
+    }
+
+    private void growNodes(int newCapacity) {
+        ByteBuffer bigger = ByteBuffer.allocateDirect(newCapacity * NODE_BYTES);
+        bigger.put(this.nodes.clear());
+        free(this.nodes);
+        this.nodes = bigger;
+        this.capacity = newCapacity;
+
+        // rebuilds the index so it stays at most half full
+        free(this.slots);
+        this.allocateSlots(Integer.highestOneBit(newCapacity - 1) << 2);
+        for (int node = this.first(); node != NIL; node = this.successor(node)) { this.indexInsert(node); }
+    }
+
+    private void ensureArena(int needed) {
+        if (this.arena.capacity() - this.arenaUsed >= needed) { return; }
+
+        // reclaims stranded bytes in place when that frees enough room, otherwise doubles
+        int live = this.arenaUsed - this.arenaGarbage;
+        long target = this.arena.capacity();
+        while (target - live < needed || live > target / 2) { target *= 2; }
+        if (target > Integer.MAX_VALUE) { throw new IllegalStateException("arena exceeds 2GB"); }
+        this.resizeArena((int) target);
+    }
+
+    // copies the live keys and data into a new arena of the given size, dropping stranded bytes
+    private void resizeArena(int newCapacity) {
+        ByteBuffer fresh = ByteBuffer.allocateDirect(newCapacity);
+        for (int node = 0; node < this.nextNode; node++) {
+            if (this.getInt(node, COUNT) == 0) { continue; }
+
+            int keyLength = this.getInt(node, KEY_LEN);
+            int dataLength = this.getInt(node, DATA_LEN);
+            int pos = fresh.position();
+            fresh.put(this.arena.duplicate().limit(this.getInt(node, KEY_POS) + keyLength)
+                    .position(this.getInt(node, KEY_POS)));
+            fresh.put(this.arena.duplicate().limit(this.getInt(node, DATA_POS) + dataLength)
+                    .position(this.getInt(node, DATA_POS)));
+            this.setInt(node, KEY_POS, pos);
+            this.setInt(node, DATA_POS, pos + keyLength);
+        }
+
+        this.arenaUsed = fresh.position();
+        this.arenaGarbage = 0;
+        free(this.arena);
+        this.arena = fresh;
+    }
+
+    /* ---------------- hash index ---------------- */
+
+    private void allocateSlots(int nSlots) {
+        this.slots = ByteBuffer.allocateDirect(Math.multiplyExact(nSlots, Integer.BYTES));
+        this.mask = nSlots - 1;
+    }
+
+    private int slot(int i) { return this.slots.getInt(i * Integer.BYTES); }
+
+    private void setSlot(int i, int value) { this.slots.putInt(i * Integer.BYTES, value); }
+
+    // encodes the key into scratch and returns the hash of its bytes
+    private int encodeProbe(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        int length = this.keyCodec.size(key);
+        if (this.scratch.capacity() < length) {
+            this.scratch = ByteBuffer.allocate(Math.max(length, this.scratch.capacity() * 2));
+        }
+        this.scratch.clear();
+        this.keyCodec.write(key, this.scratch);
+        this.scratch.flip();
+
+        int h = 1;
+        for (int i = 0; i < length; i++) { h = 31 * h + this.scratch.get(i); }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // whether the node's key has the same encoding as the probe key in scratch
+    private boolean matchesProbe(int node) {
+        int length = this.scratch.limit();
+        if (this.getInt(node, KEY_LEN) != length) { return false; }
+
+        int pos = this.getInt(node, KEY_POS);
+        for (int i = 0; i < length; i++) {
+            if (this.arena.get(pos + i) != this.scratch.get(i)) { return false; }
+        }
+        return true;
+    }
+
+    private int find(int hash) {
+        int slot = hash & this.mask;
+        while (this.slot(slot) != 0) {
+            int node = this.slot(slot) - 1;
+            if (this.getInt(node, HASH) == hash && this.matchesProbe(node)) { return node; }
+            slot = (slot + 1) & this.mask;
+        }
+        return NIL;
+    }
+
+    private void indexInsert(int node) {
+        int slot = this.getInt(node, HASH) & this.mask;
+        while (this.slot(slot) != 0) { slot = (slot + 1) & this.mask; }
+        this.setSlot(slot, node + 1);
+    }
+
+    // clears the node's slot, shifting back later entries of the run that would otherwise be cut off
+    private void indexDelete(int node) {
+        int slot = this.getInt(node, HASH) & this.mask;
+        while (this.slot(slot) != node + 1) { slot = (slot + 1) & this.mask; }
+
+        int next = (slot + 1) & this.mask;
+        while (this.slot(next) != 0) {
+            int home = this.getInt(this.slot(next) - 1, HASH) & this.mask;
+            // moves the entry back unless its home lies cyclically in (slot, next]
+            if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+                this.setSlot(slot, this.slot(next));
+                slot = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.setSlot(slot, 0);
+    }
+
+    /* ---------------- AVL tree ---------------- */
+
+    private void treeInsert(int node, K key) {
+        if (this.root == NIL) {
+            this.root = node;
+            return;
+        }
+
+        int curr = this.root;
+        while (true) {
+            int side = key.compareTo(this.readKey(curr)) < 0 ? LEFT : RIGHT;
+            int child = this.getInt(curr, side);
+            if (child == NIL) {
+                this.setInt(curr, side, node);
+                break;
+            }
+            curr = child;
+        }
+        this.setInt(node, PARENT, curr);
+        this.rebalance(curr);
+    }
+
+    private void treeRemove(int node) {
+        int left = this.getInt(node, LEFT), right = this.getInt(node, RIGHT);
+        int fixFrom;
+        if (left == NIL || right == NIL) {
+            fixFrom = this.getInt(node, PARENT);
+            this.attachParent(node, left != NIL ? left : right);
+        } else {
+            // replaces the node with its successor
+            int curr = right;
+            if (this.getInt(curr, LEFT) == NIL) { fixFrom = curr; }
+            else {
+                while (this.getInt(curr, LEFT) != NIL) { curr = this.getInt(curr, LEFT); }
+                fixFrom = this.getInt(curr, PARENT);
+
+                this.attachParent(curr, this.getInt(curr, RIGHT));
+                this.setInt(curr, RIGHT, right);
+                this.setInt(right, PARENT, curr);
+            }
+            this.attachParent(node, curr);
+            this.setInt(curr, LEFT, left);
+            this.setInt(left, PARENT, curr);
+        }
+        this.rebalance(fixFrom);
+    }
+
+    private void attachParent(int node, int child) {
+        int up = this.getInt(node, PARENT);
+        if (up == NIL) { this.root = child; }
+        else if (this.getInt(up, LEFT) == node) { this.setInt(up, LEFT, child); }
+        else { this.setInt(up, RIGHT, child); }
+
+        if (child != NIL) { this.setInt(child, PARENT, up); }
+    }
+
+    private int height(int node) { return node == NIL ? 0 : this.getInt(node, HEIGHT); }
+
+    private int total(int node) { return node == NIL ? 0 : this.getInt(node, TOTAL); }
+
+    // recomputes the node's height and subtree total from its children
+    private void updateNode(int node) {
+        int left = this.getInt(node, LEFT), right = this.getInt(node, RIGHT);
+        this.setInt(node, HEIGHT, 1 + Math.max(this.height(left), this.height(right)));
+        this.setInt(node, TOTAL, this.total(left) + this.getInt(node, COUNT) + this.total(right));
+    }
+
+    // refreshes the totals from a node whose count changed up to the root
+    private void updateTotals(int node) {
+        for (; node != NIL; node = this.getInt(node, PARENT)) {
+            this.setInt(node, TOTAL, this.total(this.getInt(node, LEFT)) + this.getInt(node, COUNT)
+                    + this.total(this.getInt(node, RIGHT)));
+        }
+    }
+
+    private void rebalance(int curr) {
+        while (curr != NIL) {
+            this.updateNode(curr);
+            int left = this.getInt(curr, LEFT), right = this.getInt(curr, RIGHT);
+            int balance = this.height(left) - this.height(right);
+            if (balance > 1) {
+                if (this.height(this.getInt(left, LEFT)) < this.height(this.getInt(left, RIGHT))) {
+                    this.rotateLeft(left);
+                }
+                curr = this.rotateRight(curr);
+            } else if (balance < -1) {
+                if (this.height(this.getInt(right, RIGHT)) < this.height(this.getInt(right, LEFT))) {
+                    this.rotateRight(right);
+                }
+                curr = this.rotateLeft(curr);
+            }
+            curr = this.getInt(curr, PARENT);
+        }
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = this.getInt(node, RIGHT);
+        int inner = this.getInt(pivot, LEFT);
+        this.setInt(node, RIGHT, inner);
+        if (inner != NIL) { this.setInt(inner, PARENT, node); }
+        this.attachParent(node, pivot);
+        this.setInt(pivot, LEFT, node);
+        this.setInt(node, PARENT, pivot);
+
+        this.updateNode(node);
+        this.updateNode(pivot);
+        return pivot;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = this.getInt(node, LEFT);
+        int inner = this.getInt(pivot, RIGHT);
+        this.setInt(node, LEFT, inner);
+        if (inner != NIL) { this.setInt(inner, PARENT, node); }
+        this.attachParent(node, pivot);
+        this.setInt(pivot, RIGHT, node);
+        this.setInt(node, PARENT, pivot);
+
+        this.updateNode(node);
+        this.updateNode(pivot);
+        return pivot;
+    }
+
+    /* ---------------- freeing direct buffers ---------------- */
+
+    // Unsafe.invokeCleaner releases a direct buffer's memory right away. it is internal to the JDK, so it is
+    // only an optimization: null if it is unavailable, in which case dropped buffers are left to the garbage
+    // collector like any other direct buffer
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    private static MethodHandle findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) { return; }
+        try {
+            INVOKE_CLEANER.invokeExact(buffer);
+        } catch (RuntimeException e) {
+            // the JDK refused, so the garbage collector frees the buffer instead
+        } catch (Throwable e) {
+            if (e instanceof Error) { throw (Error) e; }
+        }
+    }
+
+}
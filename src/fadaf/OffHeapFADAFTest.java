@@ -0,0 +1,218 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class OffHeapFADAFTest {
+
+    OffHeapFADAF<String, Double> fadaf1;
+
+    @Before
+    public void setUp() {
+        fadaf1 = new OffHeapFADAF<>(10, 16, Codec.STRING, Codec.DOUBLE);
+
+        assertTrue(fadaf1.insert("String", 0.6, 1));
+        assertTrue(fadaf1.insert("STRING", -10.2, 2));
+        assertTrue(fadaf1.insert("ST", -20.202, 4));
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 220.0, 2));
+        assertEquals(10, fadaf1.size());
+        assertEquals(4, fadaf1.nUniqueKeys());
+
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(0, fadaf1.lookup("S"));
+        assertTrue(fadaf1.update("ST", 20.202));
+        assertFalse(fadaf1.update("S", 1.0));
+        assertEquals(Double.valueOf(20.202), fadaf1.getData("ST"));
+        assertNull(fadaf1.getData("S"));
+
+        assertTrue(fadaf1.remove("SS", 1));
+        assertTrue(fadaf1.remove("STRING", 5));
+        assertFalse(fadaf1.remove("STRING", 1));
+        assertTrue(fadaf1.removeAll("String"));
+        assertFalse(fadaf1.removeAll("String"));
+        assertEquals(6, fadaf1.size());
+    }
+
+    @After
+    public void tearDown() { fadaf1.close(); }
+
+    @Test
+    public void testKeys() {
+        assertEquals(Arrays.asList("SS", "ST", "ST", "ST", "ST", "ST"), fadaf1.getAllKeys(true));
+        assertEquals(Arrays.asList("SS", "ST"), fadaf1.getAllKeys(false));
+        assertEquals(Arrays.asList("ST"), fadaf1.getUniqueKeysInRange("SS", "Z"));
+        assertEquals("SS", fadaf1.getMinKey());
+        assertEquals("ST", fadaf1.getMaxKey());
+    }
+
+    @Test
+    public void testMatchesTreeMap() {
+        OffHeapFADAF<Integer, String> fadaf = new OffHeapFADAF<>(10, 8, Codec.INTEGER, Codec.STRING);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        TreeMap<Integer, String> data = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(3000) - 1500;
+            int nCopy = 1 + random.nextInt(3);
+            switch (random.nextInt(4)) {
+                case 0:
+                    assertEquals(!expected.containsKey(key), fadaf.insert(key, "d" + i, nCopy));
+                    expected.merge(key, nCopy, Integer::sum);
+                    data.putIfAbsent(key, "d" + i);
+                    break;
+                case 1:
+                    assertEquals(expected.containsKey(key), fadaf.remove(key, nCopy));
+                    if (expected.containsKey(key)) {
+                        int left = expected.get(key) - nCopy;
+                        if (left > 0) { expected.put(key, left); }
+                        else {
+                            expected.remove(key);
+                            data.remove(key);
+                        }
+                    }
+                    break;
+                case 2:
+                    // alternates short and long data to exercise in-place and appended updates
+                    String newData = i % 2 == 0 ? "u" : "updated-" + i;
+                    assertEquals(expected.containsKey(key), fadaf.update(key, newData));
+                    if (expected.containsKey(key)) { data.put(key, newData); }
+                    break;
+                default:
+                    assertEquals((int) expected.getOrDefault(key, 0), fadaf.lookup(key));
+                    assertEquals(data.get(key), fadaf.getData(key));
+            }
+        }
+
+        assertEquals(expected.size(), fadaf.nUniqueKeys());
+        assertEquals(expected.values().stream().mapToInt(Integer::intValue).sum(), fadaf.size());
+        assertEquals(new ArrayList<>(expected.keySet()), fadaf.getAllKeys(false));
+        assertEquals(expected.firstKey(), fadaf.getMinKey());
+        assertEquals(expected.lastKey(), fadaf.getMaxKey());
+        for (Map.Entry<Integer, String> entry : data.entrySet()) {
+            assertEquals(entry.getValue(), fadaf.getData(entry.getKey()));
+        }
+        fadaf.close();
+    }
+
+    @Test
+    public void testQueriesMatchFADAF() {
+        OffHeapFADAF<Integer, String> offHeap = new OffHeapFADAF<>(10, 8, Codec.INTEGER, Codec.STRING);
+        FADAF<Integer, String> fadaf = new FADAF<>(10);
+        Random random = new Random(12);
+        for (int i = 0; i < 30000; i++) {
+            int key = random.nextInt(600);
+            int nCopy = 1 + random.nextInt(4);
+            if (random.nextInt(3) == 0) { assertEquals(fadaf.remove(key, nCopy), offHeap.remove(key, nCopy)); }
+            else { assertEquals(fadaf.insert(key, "d" + key, nCopy), offHeap.insert(key, "d" + key, nCopy)); }
+
+            if (i % 500 == 0) {
+                int lower = random.nextInt(700) - 50, upper = lower + random.nextInt(300);
+                assertEquals(fadaf.rank(lower), offHeap.rank(lower));
+                assertEquals(fadaf.countInRange(lower, upper), offHeap.countInRange(lower, upper));
+                assertEquals(fadaf.select(i % fadaf.size()), offHeap.select(i % offHeap.size()));
+                assertEquals(fadaf.percentile(i % 101), offHeap.percentile(i % 101));
+                assertEquals(fadaf.topK(i % 20), offHeap.topK(i % 20));
+                for (boolean descending : new boolean[]{false, true}) {
+                    assertEquals(toList(fadaf.uniqueKeyStream(lower, true, upper, false, descending)),
+                                 toList(offHeap.uniqueKeyStream(lower, true, upper, false, descending)));
+                    assertEquals(toList(fadaf.uniqueKeyStream(null, false, upper, true, descending)),
+                                 toList(offHeap.uniqueKeyStream(null, false, upper, true, descending)));
+                }
+            }
+        }
+
+        Iterator<FADAF.Entry<Integer, String>> expected = fadaf.entryIterator(), actual = offHeap.entryIterator();
+        while (expected.hasNext()) {
+            FADAF.Entry<Integer, String> entry = expected.next(), offHeapEntry = actual.next();
+            assertEquals(entry.toString(), offHeapEntry.toString());
+        }
+        assertFalse(actual.hasNext());
+        assertEquals(fadaf.topK(1000), offHeap.topK(1000));
+        offHeap.close();
+    }
+
+    private static <T> List<T> toList(Stream<T> stream) { return stream.collect(Collectors.toList()); }
+
+    @Test
+    public void testReserveAndClose() {
+        OffHeapFADAF<Long, Long> fadaf = new OffHeapFADAF<>(10, Codec.LONG, Codec.LONG);
+        fadaf.reserve(100000, 1 << 21);
+        assertEquals(100000, fadaf.capacity());
+        long reserved = fadaf.offHeapBytes();
+
+        for (long i = 0; i < 100000; i++) { fadaf.insert(i * 7919 % 100003, i, 1); }
+        assertEquals(reserved, fadaf.offHeapBytes());
+        assertEquals(100000, fadaf.nUniqueKeys());
+        assertEquals(Long.valueOf(0), fadaf.getMinKey());
+
+        fadaf.close();
+        assertEquals(0, fadaf.offHeapBytes());
+        fadaf.close();
+    }
+
+    @Test
+    public void testFailedEncodeLosesNoNode() {
+        // size rejects infinities and write rejects NaN, after the key is already encoded
+        Codec<Double> failing = new Codec<Double>() {
+            public int size(Double value) {
+                if (value.isInfinite()) { throw new IllegalArgumentException("cannot size"); }
+                return Double.BYTES;
+            }
+
+            public void write(Double value, ByteBuffer out) {
+                if (value.isNaN()) { throw new IllegalArgumentException("cannot encode"); }
+                out.putDouble(value);
+            }
+
+            public Double read(ByteBuffer in, int length) { return in.getDouble(); }
+        };
+        OffHeapFADAF<Integer, Double> fadaf = new OffHeapFADAF<>(10, 8, Codec.INTEGER, failing);
+        for (int i = 0; i < 1000; i++) {
+            try {
+                fadaf.insert(i, i % 2 == 0 ? Double.NaN : Double.POSITIVE_INFINITY, 1);
+                fail();
+            } catch (IllegalArgumentException e) { /* expected */ }
+        }
+        assertEquals(10, fadaf.capacity());
+        assertEquals(0, fadaf.size());
+
+        for (int i = 0; i < 10; i++) { assertTrue(fadaf.insert(i, 1.0 * i, 1)); }
+        assertEquals(10, fadaf.capacity());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), fadaf.getAllKeys(false));
+        fadaf.close();
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new OffHeapFADAF<>(9, Codec.STRING, Codec.DOUBLE); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testCapacityThrowsIAE() { new OffHeapFADAF<>(OffHeapFADAF.MAX_CAPACITY + 1, Codec.STRING, Codec.DOUBLE); }
+
+    @Test (expected = IndexOutOfBoundsException.class)
+    public void testSelectThrowsIOOBE() { fadaf1.select(6); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { fadaf1.insert(null, 1.0, 2); }
+    @Test (expected = NullPointerException.class)
+    public void testInsertDataThrowsNPE() { fadaf1.insert("S", null, 2); }
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert("S", 1.0, 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testRangeThrowsNPE() { fadaf1.getUniqueKeysInRange(null, "Z"); }
+
+    @Test (expected = IllegalStateException.class)
+    public void testClosedThrowsISE() {
+        fadaf1.close();
+        fadaf1.lookup("ST");
+    }
+
+}
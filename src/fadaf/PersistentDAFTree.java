@@ -0,0 +1,336 @@
+package fadaf;
+
+import java.util.*;
+
+/*
+ * Immutable, AVL balanced counterpart of DAFTree. A change copies only the nodes on the path from the root to
+ * the changed key, O(log n) of them, and returns a new version sharing every other node with this one. A
+ * version therefore never changes once made and can be read from any number of threads without locking.
+ * Nodes keep no parent pointers, as a node shared by several versions has no single parent. Versions that are
+ * no longer referenced, and the nodes only they used, are reclaimed by the garbage collector.
+ */
+public final class PersistentDAFTree<K extends Comparable<? super K>, D> implements Iterable<K> {
+
+    private static final class Node<K, D> {
+        final K key;
+        final D data;
+        final int count; // duplicate counter
+        final Node<K, D> left, right;
+        final int height; // longest path down to a leaf, counting this node
+        final int size; // unique keys in this subtree
+        final int total; // copies of all keys in this subtree
+
+        Node(K key, D data, int count, Node<K, D> left, Node<K, D> right) {
+            this.key = key;
+            this.data = data;
+            this.count = count;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+            this.total = count + total(left) + total(right);
+        }
+
+        // a copy with other children, rebalanced when they differ in height by more than one
+        Node<K, D> with(Node<K, D> left, Node<K, D> right) { return balance(this.key, this.data, this.count, left, right); }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final PersistentDAFTree EMPTY = new PersistentDAFTree<>(null);
+
+    private final Node<K, D> root;
+
+    private PersistentDAFTree(Node<K, D> root) { this.root = root; }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, D> PersistentDAFTree<K, D> empty() { return EMPTY; }
+
+    public int size() { return total(this.root); }
+
+    public int nUniqueKeys() { return size(this.root); }
+
+    public int height() { return height(this.root); }
+
+    /* the version with nCopy more copies of the key. data is only stored if the key is new */
+    public PersistentDAFTree<K, D> insert(K key, D data, int nCopy) {
+        if (key == null || data == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+        return new PersistentDAFTree<>(insert(this.root, key, data, nCopy));
+    }
+
+    /* the version with up to nCopy fewer copies of the key, or this version if the key is absent */
+    public PersistentDAFTree<K, D> remove(K key, int nCopy) {
+        if (key == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+        return this.version(remove(this.root, key, nCopy));
+    }
+
+    public PersistentDAFTree<K, D> removeAll(K key) { return this.remove(key, Integer.MAX_VALUE); }
+
+    /* the version with the key's data replaced, or this version if the key is absent */
+    public PersistentDAFTree<K, D> update(K key, D newData) {
+        if (key == null || newData == null) { throw new NullPointerException(); }
+        return this.version(update(this.root, key, newData));
+    }
+
+    // unchanged subtrees come back as the same node, so an unchanged root means nothing changed
+    private PersistentDAFTree<K, D> version(Node<K, D> root) {
+        return root == this.root ? this : new PersistentDAFTree<>(root);
+    }
+
+    public int lookup(K key) {
+        Node<K, D> node = this.find(key);
+        return node == null ? 0 : node.count;
+    }
+
+    /* data of the key, null if absent */
+    public D getData(K key) {
+        Node<K, D> node = this.find(key);
+        return node == null ? null : node.data;
+    }
+
+    private Node<K, D> find(K key) {
+        if (key == null) { throw new NullPointerException(); }
+
+        Node<K, D> curr = this.root;
+        while (curr != null) {
+            int compared = key.compareTo(curr.key);
+            if (compared == 0) { return curr; }
+            curr = compared < 0 ? curr.left : curr.right;
+        }
+        return null;
+    }
+
+    /* number of copies of keys less than the given key */
+    public int rank(K key) {
+        if (key == null) { throw new NullPointerException(); }
+        return this.countBelow(key, false);
+    }
+
+    /* key of the copy at the given 0-based position of the sorted multiset */
+    public K select(int index) {
+        if (index < 0 || index >= this.size()) { throw new IndexOutOfBoundsException(); }
+
+        Node<K, D> curr = this.root;
+        while (true) {
+            int leftTotal = total(curr.left);
+            if (index < leftTotal) { curr = curr.left; }
+            else if (index < leftTotal + curr.count) { return curr.key; }
+            else {
+                index -= leftTotal + curr.count;
+                curr = curr.right;
+            }
+        }
+    }
+
+    /* number of copies of keys strictly between lower and upper */
+    public int countInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+        return Math.max(0, this.countBelow(upper, false) - this.countBelow(lower, true));
+    }
+
+    // number of copies of keys less than the given key, or at most the key if inclusive
+    private int countBelow(K key, boolean inclusive) {
+        int below = 0;
+        Node<K, D> curr = this.root;
+        while (curr != null) {
+            int compared = key.compareTo(curr.key);
+
+            if (compared < 0 || (compared == 0 && !inclusive)) { curr = curr.left; }
+            else {
+                below += total(curr.left) + curr.count;
+                if (compared == 0) { break; }
+                curr = curr.right;
+            }
+        }
+        return below;
+    }
+
+    public K getMinKey() {
+        if (this.root == null) { return null; }
+
+        Node<K, D> curr = this.root;
+        while (curr.left != null) { curr = curr.left; }
+        return curr.key;
+    }
+
+    public K getMaxKey() {
+        if (this.root == null) { return null; }
+
+        Node<K, D> curr = this.root;
+        while (curr.right != null) { curr = curr.right; }
+        return curr.key;
+    }
+
+    public List<K> getAllKeys(boolean allowDuplicate) {
+        ArrayList<K> list = new ArrayList<>(allowDuplicate ? this.size() : this.nUniqueKeys());
+        Cursor cursor = new Cursor(null, null);
+        while (cursor.hasNext()) {
+            Node<K, D> node = cursor.next();
+            for (int i = allowDuplicate ? node.count : 1; i > 0; i--) { list.add(node.key); }
+        }
+        return list;
+    }
+
+    /* unique keys strictly between the bounds */
+    public List<K> getUniqueKeysInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+
+        ArrayList<K> list = new ArrayList<>();
+        Cursor cursor = new Cursor(lower, upper);
+        while (cursor.hasNext()) { list.add(cursor.next().key); }
+        return list;
+    }
+
+    /* lazily yields the unique keys strictly between the bounds. null bounds are open */
+    public Iterator<K> uniqueKeysInRange(K lower, K upper) {
+        Cursor cursor = new Cursor(lower, upper);
+        return new Iterator<K>() {
+            public boolean hasNext() { return cursor.hasNext(); }
+
+            public K next() { return cursor.next().key; }
+        };
+    }
+
+    /* yields every copy of every key, repeating each key count times rather than storing the copies */
+    @Override
+    public Iterator<K> iterator() {
+        Cursor cursor = new Cursor(null, null);
+        return new Iterator<K>() {
+            private K current;
+            private int copiesLeft;
+
+            public boolean hasNext() { return this.copiesLeft > 0 || cursor.hasNext(); }
+
+            public K next() {
+                if (this.copiesLeft == 0) {
+                    Node<K, D> node = cursor.next();
+                    this.current = node.key;
+                    this.copiesLeft = node.count;
+                }
+                this.copiesLeft--;
+                return this.current;
+            }
+        };
+    }
+
+    // in-order walk over nodes strictly between the bounds, null bounds are open. O(height) memory
+    private final class Cursor {
+        private final ArrayDeque<Node<K, D>> stack = new ArrayDeque<>();
+        private final K upper;
+
+        Cursor(K lower, K upper) {
+            this.upper = upper;
+            // seeks the first key above lower, stacking the nodes still to visit
+            Node<K, D> curr = root;
+            while (curr != null) {
+                if (lower == null || curr.key.compareTo(lower) > 0) {
+                    this.stack.push(curr);
+                    curr = curr.left;
+                } else { curr = curr.right; }
+            }
+        }
+
+        boolean hasNext() {
+            return !this.stack.isEmpty() && (this.upper == null || this.stack.peek().key.compareTo(this.upper) < 0);
+        }
+
+        Node<K, D> next() {
+            if (!this.hasNext()) { throw new NoSuchElementException(); }
+
+            Node<K, D> node = this.stack.pop();
+            for (Node<K, D> curr = node.right; curr != null; curr = curr.left) { this.stack.push(curr); }
+            return node;
+        }
+    }
+
+    /* ---------------- path copying ---------------- */
+
+    private static <K extends Comparable<? super K>, D> Node<K, D> insert(Node<K, D> node, K key, D data,
+                                                                          int nCopy) {
+        if (node == null) { return new Node<>(key, data, nCopy, null, null); }
+
+        int compared = key.compareTo(node.key);
+        if (compared < 0) { return node.with(insert(node.left, key, data, nCopy), node.right); }
+        if (compared > 0) { return node.with(node.left, insert(node.right, key, data, nCopy)); }
+        return new Node<>(node.key, node.data, node.count + nCopy, node.left, node.right);
+    }
+
+    private static <K extends Comparable<? super K>, D> Node<K, D> remove(Node<K, D> node, K key, int nCopy) {
+        if (node == null) { return null; }
+
+        int compared = key.compareTo(node.key);
+        if (compared < 0) {
+            Node<K, D> left = remove(node.left, key, nCopy);
+            return left == node.left ? node : node.with(left, node.right);
+        }
+        if (compared > 0) {
+            Node<K, D> right = remove(node.right, key, nCopy);
+            return right == node.right ? node : node.with(node.left, right);
+        }
+
+        // if node will remain, update count. otherwise, node will need to be removed
+        if (nCopy < node.count) { return new Node<>(node.key, node.data, node.count - nCopy, node.left, node.right); }
+        if (node.left == null) { return node.right; }
+        if (node.right == null) { return node.left; }
+
+        // two children, so the successor takes the node's place
+        Node<K, D> successor = node.right;
+        while (successor.left != null) { successor = successor.left; }
+        return balance(successor.key, successor.data, successor.count, node.left, removeMin(node.right));
+    }
+
+    private static <K, D> Node<K, D> removeMin(Node<K, D> node) {
+        if (node.left == null) { return node.right; }
+        return node.with(removeMin(node.left), node.right);
+    }
+
+    private static <K extends Comparable<? super K>, D> Node<K, D> update(Node<K, D> node, K key, D newData) {
+        if (node == null) { return null; }
+
+        int compared = key.compareTo(node.key);
+        if (compared < 0) {
+            Node<K, D> left = update(node.left, key, newData);
+            return left == node.left ? node : new Node<>(node.key, node.data, node.count, left, node.right);
+        }
+        if (compared > 0) {
+            Node<K, D> right = update(node.right, key, newData);
+            return right == node.right ? node : new Node<>(node.key, node.data, node.count, node.left, right);
+        }
+        return new Node<>(node.key, newData, node.count, node.left, node.right);
+    }
+
+    // builds a node over the children, rotating once or twice if they differ in height by more than one
+    private static <K, D> Node<K, D> balance(K key, D data, int count, Node<K, D> left, Node<K, D> right) {
+        int balance = height(left) - height(right);
+        if (balance > 1) {
+            if (height(left.left) < height(left.right)) { left = rotateLeft(left); }
+            return new Node<>(left.key, left.data, left.count, left.left,
+                              new Node<>(key, data, count, left.right, right));
+        } else if (balance < -1) {
+            if (height(right.right) < height(right.left)) { right = rotateRight(right); }
+            return new Node<>(right.key, right.data, right.count,
+                              new Node<>(key, data, count, left, right.left), right.right);
+        }
+        return new Node<>(key, data, count, left, right);
+    }
+
+    private static <K, D> Node<K, D> rotateLeft(Node<K, D> node) {
+        Node<K, D> pivot = node.right;
+        return new Node<>(pivot.key, pivot.data, pivot.count,
+                          new Node<>(node.key, node.data, node.count, node.left, pivot.left), pivot.right);
+    }
+
+    private static <K, D> Node<K, D> rotateRight(Node<K, D> node) {
+        Node<K, D> pivot = node.left;
+        return new Node<>(pivot.key, pivot.data, pivot.count, pivot.left,
+                          new Node<>(node.key, node.data, node.count, pivot.right, node.right));
+    }
+
+    private static int height(Node<?, ?> node) { return node == null ? 0 : node.height; }
+
+    private static int size(Node<?, ?> node) { return node == null ? 0 : node.size; }
+
+    private static int total(Node<?, ?> node) { return node == null ? 0 : node.total; }
+
+}
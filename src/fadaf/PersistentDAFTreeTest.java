@@ -0,0 +1,127 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PersistentDAFTreeTest {
+
+    PersistentDAFTree<String, Double> tree1;
+
+    @Before
+    public void setUp() {
+        tree1 = PersistentDAFTree.<String, Double>empty()
+                .insert("String", 0.6, 1)
+                .insert("STRING", -10.2, 2)
+                .insert("ST", -20.202, 4)
+                .insert("Str", -4.8, 1)
+                .insert("ST", 22.0, 1)
+                .insert("SS", 2.0, 2);
+        assertEquals(11, tree1.size());
+        assertEquals(5, tree1.nUniqueKeys());
+    }
+
+    @Test
+    public void testQueries() {
+        assertEquals(5, tree1.lookup("ST"));
+        assertEquals(0, tree1.lookup("STR"));
+        assertEquals(-20.202, tree1.getData("ST"), 0);
+        assertNull(tree1.getData("STR"));
+        assertEquals("SS", tree1.getMinKey());
+        assertEquals("String", tree1.getMaxKey());
+        assertEquals(Arrays.asList("SS", "SS", "ST", "ST", "ST", "ST", "ST", "STRING", "STRING", "Str", "String"),
+                tree1.getAllKeys(true));
+        List<String> iterated = new ArrayList<>();
+        for (String key : tree1) { iterated.add(key); }
+        assertEquals(tree1.getAllKeys(true), iterated);
+        assertEquals(Arrays.asList("STRING", "Str", "String"), tree1.getUniqueKeysInRange("ST", "string"));
+        assertEquals(2, tree1.rank("ST"));
+        assertEquals("STRING", tree1.select(7));
+        assertEquals(3, tree1.countInRange("ST", "String"));
+    }
+
+    @Test
+    public void testOldVersionsDoNotChange() {
+        PersistentDAFTree<String, Double> removed = tree1.remove("ST", 4).removeAll("SS").update("Str", 1.0);
+        assertEquals(Arrays.asList("ST", "STRING", "Str", "String"), removed.getAllKeys(false));
+        assertEquals(1, removed.lookup("ST"));
+        assertEquals(1.0, removed.getData("Str"), 0);
+
+        assertEquals(Arrays.asList("SS", "ST", "STRING", "Str", "String"), tree1.getAllKeys(false));
+        assertEquals(5, tree1.lookup("ST"));
+        assertEquals(-4.8, tree1.getData("Str"), 0);
+        assertEquals(11, tree1.size());
+    }
+
+    @Test
+    public void testMissingKeyKeepsVersion() {
+        assertSame(tree1, tree1.remove("STR", 1));
+        assertSame(tree1, tree1.removeAll("STR"));
+        assertSame(tree1, tree1.update("STR", 1.0));
+        assertNull(PersistentDAFTree.<String, Double>empty().getMinKey());
+    }
+
+    @Test
+    public void testMatchesTreeMapAcrossVersions() {
+        Random random = new Random(20);
+        List<PersistentDAFTree<Integer, Integer>> versions = new ArrayList<>();
+        List<TreeMap<Integer, Integer>> expected = new ArrayList<>();
+        PersistentDAFTree<Integer, Integer> tree = PersistentDAFTree.empty();
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(500);
+            int nCopy = 1 + random.nextInt(3);
+            if (random.nextInt(3) > 0) {
+                tree = tree.insert(key, key, nCopy);
+                counts.merge(key, nCopy, Integer::sum);
+            } else {
+                tree = tree.remove(key, nCopy);
+                counts.computeIfPresent(key, (k, count) -> count > nCopy ? count - nCopy : null);
+            }
+            if (i % 1000 == 0) {
+                versions.add(tree);
+                expected.add(new TreeMap<>(counts));
+            }
+        }
+
+        for (int v = 0; v < versions.size(); v++) {
+            PersistentDAFTree<Integer, Integer> version = versions.get(v);
+            assertEquals(new ArrayList<>(expected.get(v).keySet()), version.getAllKeys(false));
+            int total = 0;
+            for (Map.Entry<Integer, Integer> entry : expected.get(v).entrySet()) {
+                assertEquals((int) entry.getValue(), version.lookup(entry.getKey()));
+                total += entry.getValue();
+            }
+            assertEquals(total, version.size());
+            // AVL height bound
+            assertTrue(version.height() <= 1.45 * Math.log(version.nUniqueKeys() + 2) / Math.log(2));
+        }
+    }
+
+    // test exceptions
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { tree1.insert(null, 2.0, 2); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertDataThrowsNPE() { tree1.insert("Str", null, 2); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { tree1.insert("Str", 2.0, 0); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testRemoveThrowsIAE() { tree1.remove("STR", 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testLookupThrowsNPE() { tree1.lookup(null); }
+
+    @Test (expected = IndexOutOfBoundsException.class)
+    public void testSelectThrowsIOOBE() { tree1.select(11); }
+
+}
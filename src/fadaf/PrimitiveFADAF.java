@@ -0,0 +1,366 @@
+package fadaf;
+
+import java.util.*;
+
+/*
+ * Tree and hash index shared by the FADAFs with primitive keys. Nodes live in parallel primitive arrays
+ * indexed by node number, so keys are never boxed and no object is allocated per key. Arrays only grow when
+ * the number of unique keys outgrows them; insert, lookup and remove are allocation-free otherwise.
+ *
+ * Subclasses own the key array, so each stores keys at its own width, and expose the operations with their
+ * key type. Keys are compared and hashed as longs.
+ */
+@SuppressWarnings("unchecked")
+abstract class PrimitiveFADAF<D> {
+
+    static final int NIL = -1;
+    private static final int MIN_THRESHOLD = 10;
+
+    // tree nodes, indexed by node number. removed nodes are chained through right[] into a free list
+    int[] counts;
+    private int[] left, right, parent;
+    private int[] heights;
+    private Object[] data;
+    private int root;
+    private int freeHead;
+    private int nextNode; // nodes at or above this number have never been used
+
+    // linear probing index from key to node number + 1. 0 marks an empty slot
+    private int[] slots;
+    private int mask;
+
+    private int nElems;
+    private int nUnique;
+
+    /* the subclass allocates its key array with the same capacity */
+    PrimitiveFADAF(int capacity) {
+        if (capacity < MIN_THRESHOLD) { throw new IllegalArgumentException(); }
+
+        this.counts = new int[capacity];
+        this.left = new int[capacity];
+        this.right = new int[capacity];
+        this.parent = new int[capacity];
+        this.heights = new int[capacity];
+        this.data = new Object[capacity];
+        this.root = this.freeHead = NIL;
+        this.nextNode = 0;
+
+        // keeps the index at most half full
+        this.slots = new int[Integer.highestOneBit(capacity - 1) << 2];
+        this.mask = this.slots.length - 1;
+        this.nElems = this.nUnique = 0;
+    }
+
+    /* the key of the node, widened to a long */
+    abstract long key(int node);
+
+    abstract void setKey(int node, long key);
+
+    /* grows the key array to the given number of nodes, keeping its contents */
+    abstract void growKeys(int capacity);
+
+    public int size() { return this.nElems; }
+
+    public int nUniqueKeys() { return this.nUnique; }
+
+    boolean insertKey(long key, D data, int nCopy) {
+        if (data == null) { throw new NullPointerException(); }
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        // key already present, a single probe is enough
+        int node = this.find(key);
+        if (node != NIL) {
+            this.counts[node] += nCopy;
+            this.nElems += nCopy;
+            return false;
+        }
+
+        node = this.allocate(key, data, nCopy);
+        this.treeInsert(node);
+        this.indexInsert(node);
+        this.nElems += nCopy;
+        this.nUnique++;
+        return true;
+    }
+
+    int lookupKey(long key) {
+        int node = this.find(key);
+        return node == NIL ? 0 : this.counts[node];
+    }
+
+    boolean removeKey(long key, int nCopy) {
+        if (nCopy < 1) { throw new IllegalArgumentException(); }
+
+        int node = this.find(key);
+        // key not present
+        if (node == NIL) { return false; }
+
+        if (nCopy < this.counts[node]) {
+            this.counts[node] -= nCopy;
+            this.nElems -= nCopy;
+        } else { this.release(node); }
+        return true;
+    }
+
+    boolean removeAllKeys(long key) {
+        int node = this.find(key);
+        // key not present
+        if (node == NIL) { return false; }
+
+        this.release(node);
+        return true;
+    }
+
+    boolean updateKey(long key, D newData) {
+        if (newData == null) { throw new NullPointerException(); }
+
+        int node = this.find(key);
+        if (node == NIL) { return false; }
+        this.data[node] = newData;
+        return true;
+    }
+
+    /* the node of the smallest key, throwing if there is none */
+    int minNode() {
+        if (this.root == NIL) { throw new NoSuchElementException(); }
+        return this.first();
+    }
+
+    int maxNode() {
+        if (this.root == NIL) { throw new NoSuchElementException(); }
+        int curr = this.root;
+        while (this.right[curr] != NIL) { curr = this.right[curr]; }
+        return curr;
+    }
+
+    // the node of the smallest key above lower, NIL if there is none
+    int firstAbove(long lower) {
+        int node = NIL;
+        int curr = this.root;
+        while (curr != NIL) {
+            if (Long.compare(this.key(curr), lower) > 0) {
+                node = curr;
+                curr = this.left[curr];
+            } else { curr = this.right[curr]; }
+        }
+        return node;
+    }
+
+    int first() {
+        int curr = this.root;
+        if (curr == NIL) { return NIL; }
+        while (this.left[curr] != NIL) { curr = this.left[curr]; }
+        return curr;
+    }
+
+    int successor(int node) {
+        if (this.right[node] != NIL) {
+            node = this.right[node];
+            while (this.left[node] != NIL) { node = this.left[node]; }
+            return node;
+        }
+        int up = this.parent[node];
+        while (up != NIL && this.right[up] == node) {
+            node = up;
+            up = this.parent[up];
+        }
+        return up;
+    }
+
+    /* ---------------- node storage ---------------- */
+
+    private int allocate(long key, D data, int nCopy) {
+        int node;
+        if (this.freeHead != NIL) {
+            node = this.freeHead;
+            this.freeHead = this.right[node];
+        } else {
+            if (this.nextNode == this.counts.length) { this.grow(); }
+            node = this.nextNode++;
+        }
+
+        this.setKey(node, key);
+        this.data[node] = data;
+        this.counts[node] = nCopy;
+        this.left[node] = this.right[node] = this.parent[node] = NIL;
+        this.heights[node] = 1;
+        return node;
+    }
+
+    // unlinks the node from the tree and the index, then returns it to the free list
+    private void release(int node) {
+        this.indexDelete(node);
+        this.treeRemove(node);
+        this.nElems -= this.counts[node];
+        this.nUnique--;
+
+        this.counts[node] = 0;
+        this.data[node] = null;
+        this.right[node] = this.freeHead;
+        this.freeHead = node;
+    }
+
+    private void grow() {
+        int capacity = this.counts.length * 2;
+        this.growKeys(capacity);
+        this.counts = Arrays.copyOf(this.counts, capacity);
+        this.left = Arrays.copyOf(this.left, capacity);
+        this.right = Arrays.copyOf(this.right, capacity);
+        this.parent = Arrays.copyOf(this.parent, capacity);
+        this.heights = Arrays.copyOf(this.heights, capacity);
+        this.data = Arrays.copyOf(this.data, capacity);
+
+        // rebuilds the index so it stays at most half full
+        this.slots = new int[this.slots.length * 2];
+        this.mask = this.slots.length - 1;
+        for (int node = this.first(); node != NIL; node = this.successor(node)) { this.indexInsert(node); }
+    }
+
+    /* ---------------- hash index ---------------- */
+
+    private static int hash(long key) { return HashTable.mix(key); }
+
+    private int find(long key) {
+        int slot = hash(key) & this.mask;
+        while (this.slots[slot] != 0) {
+            int node = this.slots[slot] - 1;
+            if (this.key(node) == key) { return node; }
+            slot = (slot + 1) & this.mask;
+        }
+        return NIL;
+    }
+
+    private void indexInsert(int node) {
+        int slot = hash(this.key(node)) & this.mask;
+        while (this.slots[slot] != 0) { slot = (slot + 1) & this.mask; }
+        this.slots[slot] = node + 1;
+    }
+
+    // clears the node's slot, shifting back later entries of the run that would otherwise be cut off
+    private void indexDelete(int node) {
+        int slot = hash(this.key(node)) & this.mask;
+        while (this.slots[slot] != node + 1) { slot = (slot + 1) & this.mask; }
+
+        int next = (slot + 1) & this.mask;
+        while (this.slots[next] != 0) {
+            int home = hash(this.key(this.slots[next] - 1)) & this.mask;
+            // moves the entry back unless its home lies cyclically in (slot, next]
+            if (((next - home) & this.mask) >= ((next - slot) & this.mask)) {
+                this.slots[slot] = this.slots[next];
+                slot = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        this.slots[slot] = 0;
+    }
+
+    /* ---------------- AVL tree ---------------- */
+
+    private void treeInsert(int node) {
+        if (this.root == NIL) {
+            this.root = node;
+            return;
+        }
+
+        long key = this.key(node);
+        int curr = this.root;
+        while (true) {
+            if (Long.compare(key, this.key(curr)) < 0) {
+                if (this.left[curr] == NIL) {
+                    this.left[curr] = node;
+                    break;
+                } else { curr = this.left[curr]; }
+            } else {
+                if (this.right[curr] == NIL) {
+                    this.right[curr] = node;
+                    break;
+                } else { curr = this.right[curr]; }
+            }
+        }
+        this.parent[node] = curr;
+        this.rebalance(curr);
+    }
+
+    private void treeRemove(int node) {
+        int fixFrom;
+        if (this.left[node] == NIL || this.right[node] == NIL) {
+            fixFrom = this.parent[node];
+            this.attachParent(node, this.left[node] != NIL ? this.left[node] : this.right[node]);
+        } else {
+            // replaces the node with its successor
+            int curr = this.right[node];
+            if (this.left[curr] == NIL) { fixFrom = curr; }
+            else {
+                while (this.left[curr] != NIL) { curr = this.left[curr]; }
+                fixFrom = this.parent[curr];
+
+                this.attachParent(curr, this.right[curr]);
+                this.right[curr] = this.right[node];
+                this.parent[this.right[curr]] = curr;
+            }
+            this.attachParent(node, curr);
+            this.left[curr] = this.left[node];
+            this.parent[this.left[curr]] = curr;
+        }
+        this.rebalance(fixFrom);
+    }
+
+    private void attachParent(int node, int child) {
+        int up = this.parent[node];
+        if (up == NIL) { this.root = child; }
+        else if (this.left[up] == node) { this.left[up] = child; }
+        else { this.right[up] = child; }
+
+        if (child != NIL) { this.parent[child] = up; }
+    }
+
+    private int height(int node) { return node == NIL ? 0 : this.heights[node]; }
+
+    private void updateHeight(int node) {
+        this.heights[node] = 1 + Math.max(this.height(this.left[node]), this.height(this.right[node]));
+    }
+
+    private void rebalance(int curr) {
+        while (curr != NIL) {
+            this.updateHeight(curr);
+            int balance = this.height(this.left[curr]) - this.height(this.right[curr]);
+            if (balance > 1) {
+                int child = this.left[curr];
+                if (this.height(this.left[child]) < this.height(this.right[child])) { this.rotateLeft(child); }
+                curr = this.rotateRight(curr);
+            } else if (balance < -1) {
+                int child = this.right[curr];
+                if (this.height(this.right[child]) < this.height(this.left[child])) { this.rotateRight(child); }
+                curr = this.rotateLeft(curr);
+            }
+            curr = this.parent[curr];
+        }
+    }
+
+    private int rotateLeft(int node) {
+        int pivot = this.right[node];
+        this.right[node] = this.left[pivot];
+        if (this.left[pivot] != NIL) { this.parent[this.left[pivot]] = node; }
+        this.attachParent(node, pivot);
+        this.left[pivot] = node;
+        this.parent[node] = pivot;
+
+        this.updateHeight(node);
+        this.updateHeight(pivot);
+        return pivot;
+    }
+
+    private int rotateRight(int node) {
+        int pivot = this.left[node];
+        this.left[node] = this.right[pivot];
+        if (this.right[pivot] != NIL) { this.parent[this.right[pivot]] = node; }
+        this.attachParent(node, pivot);
+        this.right[pivot] = node;
+        this.parent[node] = pivot;
+
+        this.updateHeight(node);
+        this.updateHeight(pivot);
+        return pivot;
+    }
+
+}
@@ -0,0 +1,91 @@
+package fadaf;
+
+import java.nio.ByteBuffer;
+
+/*
+ * Wire format shared by FADAFServer and FADAFClient. Everything is big-endian.
+ *
+ *   frame    := int length, then length bytes of requests or of responses
+ *   request  := byte op, then its arguments
+ *   response := byte status, then its result if the status is OK, or a UTF-8 message if it is ERROR
+ *   value    := int length, then the bytes of the key or data codec
+ *
+ * A response frame answers one request frame, with one response per request in the same order, so a batch is
+ * simply a frame holding several requests. Clients may send any number of frames before reading responses.
+ *
+ *   op          arguments                   result
+ *   INSERT      key, data, int nCopy        byte inserted
+ *   LOOKUP      key                         int count
+ *   REMOVE      key, int nCopy              byte removed
+ *   REMOVE_ALL  key                         byte removed
+ *   UPDATE      key, data                   byte updated
+ *   RANGE       key lower, key upper        int n, then n keys strictly between the bounds
+ *   MIN, MAX    none                        byte present, then the key if present
+ */
+final class Protocol {
+
+    static final byte INSERT = 1;
+    static final byte LOOKUP = 2;
+    static final byte REMOVE = 3;
+    static final byte REMOVE_ALL = 4;
+    static final byte UPDATE = 5;
+    static final byte RANGE = 6;
+    static final byte MIN = 7;
+    static final byte MAX = 8;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final int MAX_FRAME = 1 << 24; // larger frames close the connection
+
+    private Protocol() { }
+
+    /* a frame that cannot be parsed. the stream can no longer be trusted, so the connection is dropped */
+    static final class MalformedFrameException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        MalformedFrameException(String message, Throwable cause) { super(message, cause); }
+    }
+
+    static <T> int valueSize(Codec<T> codec, T value) { return Integer.BYTES + codec.size(value); }
+
+    static <T> void writeValue(Codec<T> codec, T value, ByteBuffer out) {
+        int lengthAt = out.position();
+        out.position(lengthAt + Integer.BYTES);
+        codec.write(value, out);
+        out.putInt(lengthAt, out.position() - lengthAt - Integer.BYTES);
+    }
+
+    /* reads a value, leaving the buffer just past it however much of it the codec consumed */
+    static <T> T readValue(Codec<T> codec, ByteBuffer in) {
+        try {
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining()) { throw new MalformedFrameException("bad value length", null); }
+
+            int end = in.position() + length;
+            T value = codec.read(in.slice(in.position(), length), length);
+            in.position(end);
+            if (value == null) { throw new MalformedFrameException("null value", null); }
+            return value;
+        } catch (MalformedFrameException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new MalformedFrameException("undecodable value", e);
+        }
+    }
+
+    /* a buffer holding the contents of the given one and room for at least extra more bytes */
+    static ByteBuffer grow(ByteBuffer buffer, int extra) {
+        if (buffer.remaining() >= extra) { return buffer; }
+
+        long needed = (long) buffer.position() + extra;
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, 2L * buffer.capacity()));
+        if (capacity < needed) { throw new IllegalStateException("buffer too large"); }
+
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+
+}
@@ -0,0 +1,145 @@
+package fadaf;
+
+import java.util.*;
+
+/*
+ * FADAF hash-partitioned across independent ConcurrentFADAF shards, each with its own writer lock, so writers
+ * to different shards never contend. Point operations touch only the key's shard. Ordered queries take an O(1)
+ * snapshot of every shard and merge them lazily: a heap holds the next key of each shard, so producing the
+ * next key costs O(log nShards) and a query that stops early never reads the rest. Each shard's part of a
+ * result is one consistent version of that shard, but shards are snapshotted one after another, so a result
+ * is not an atomic cut across shards.
+ */
+public class ShardedFADAF<K extends Comparable<? super K>, D> {
+
+    private static final int MIN_THRESHOLD = 10;
+
+    private final ConcurrentFADAF<K, D>[] shards;
+
+    // an iterator together with the key it yielded last
+    private static class Head<K> {
+        final Iterator<K> iter;
+        K key;
+
+        Head(Iterator<K> iter) {
+            this.iter = iter;
+            this.key = iter.next();
+        }
+    }
+
+    /* one shard per available processor */
+    public ShardedFADAF(int capacity) { this(Runtime.getRuntime().availableProcessors(), capacity); }
+
+    public ShardedFADAF(int nShards, int capacity) {
+        if (nShards < 1 || capacity < MIN_THRESHOLD) { throw new IllegalArgumentException(); }
+
+        this.shards = newShards(nShards);
+        for (int i = 0; i < nShards; i++) {
+            this.shards[i] = new ConcurrentFADAF<>(Math.max(MIN_THRESHOLD, capacity / nShards));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>, D> ConcurrentFADAF<K, D>[] newShards(int nShards) {
+        return (ConcurrentFADAF<K, D>[]) new ConcurrentFADAF<?, ?>[nShards];
+    }
+
+    public int nShards() { return this.shards.length; }
+
+    // picks a shard from the high bits of a scrambled hash
+    private ConcurrentFADAF<K, D> shard(K key) {
+        if (key == null) { throw new NullPointerException(); }
+        long mixed = (NodeIndex.hash(key) * 0x9E3779B9L) & 0xFFFFFFFFL;
+        return this.shards[(int) ((mixed * this.shards.length) >>> 32)];
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentFADAF<K, D> shard : this.shards) { size += shard.size(); }
+        return size;
+    }
+
+    public int nUniqueKeys() {
+        int nUnique = 0;
+        for (ConcurrentFADAF<K, D> shard : this.shards) { nUnique += shard.nUniqueKeys(); }
+        return nUnique;
+    }
+
+    public boolean insert(K key, D data, int nCopy) { return this.shard(key).insert(key, data, nCopy); }
+
+    public int lookup(K key) { return this.shard(key).lookup(key); }
+
+    public boolean remove(K key, int nCopy) { return this.shard(key).remove(key, nCopy); }
+
+    public boolean removeAll(K key) { return this.shard(key).removeAll(key); }
+
+    public boolean update(K key, D newData) { return this.shard(key).update(key, newData); }
+
+    public List<K> getAllKeys(boolean allowDuplicate) {
+        ArrayList<K> list = new ArrayList<>();
+        Iterator<K> iter = allowDuplicate ? this.merge(PersistentDAFTree::iterator)
+                                          : this.uniqueKeysInRange(null, null);
+        while (iter.hasNext()) { list.add(iter.next()); }
+        return list;
+    }
+
+    public List<K> getUniqueKeysInRange(K lower, K upper) {
+        if (lower == null || upper == null) { throw new NullPointerException(); }
+
+        ArrayList<K> list = new ArrayList<>();
+        Iterator<K> iter = this.uniqueKeysInRange(lower, upper);
+        while (iter.hasNext()) { list.add(iter.next()); }
+        return list;
+    }
+
+    /* lazily merges the unique keys strictly between the bounds from every shard. null bounds are open */
+    public Iterator<K> uniqueKeysInRange(K lower, K upper) {
+        return this.merge(tree -> tree.uniqueKeysInRange(lower, upper));
+    }
+
+    public K getMinKey() { return this.extreme(false); }
+
+    public K getMaxKey() { return this.extreme(true); }
+
+    // the smallest or largest of the shards' extremes, the first step of a merge in either direction
+    private K extreme(boolean isMax) {
+        K best = null;
+        for (ConcurrentFADAF<K, D> shard : this.shards) {
+            K key = isMax ? shard.getMaxKey() : shard.getMinKey();
+            if (key != null && (best == null || (isMax ? key.compareTo(best) > 0 : key.compareTo(best) < 0))) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    private interface Source<K extends Comparable<? super K>, D> {
+        Iterator<K> open(PersistentDAFTree<K, D> tree);
+    }
+
+    // k-way merge of one ascending iterator per shard. shards hold disjoint keys, so no merging of equal keys
+    private Iterator<K> merge(Source<K, D> source) {
+        PriorityQueue<Head<K>> heads = new PriorityQueue<>(this.shards.length, (a, b) -> a.key.compareTo(b.key));
+        for (ConcurrentFADAF<K, D> shard : this.shards) {
+            Iterator<K> iter = source.open(shard.snapshot());
+            if (iter.hasNext()) { heads.add(new Head<>(iter)); }
+        }
+
+        return new Iterator<K>() {
+            public boolean hasNext() { return !heads.isEmpty(); }
+
+            public K next() {
+                Head<K> head = heads.poll();
+                if (head == null) { throw new NoSuchElementException(); }
+
+                K key = head.key;
+                if (head.iter.hasNext()) {
+                    head.key = head.iter.next();
+                    heads.add(head);
+                }
+                return key;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,126 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ShardedFADAFTest {
+
+    ShardedFADAF<String, Double> fadaf1;
+
+    @Before
+    public void setUp() {
+        fadaf1 = new ShardedFADAF<>(4, 10);
+
+        String[] keys = new String[]{"String", "STRING", "ST", "Str"};
+        Double[] data = new Double[]{0.6, -10.2, -20.202, -4.8};
+        int[] counts = {1, 2, 4, 1};
+        for (int j = 0; j < keys.length; j++) { assertTrue(fadaf1.insert(keys[j], data[j], counts[j])); }
+
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 2.0, 2));
+        assertEquals(11, fadaf1.size());
+        assertEquals(5, fadaf1.nUniqueKeys());
+
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(0, fadaf1.lookup("STR"));
+        assertTrue(fadaf1.update("ST", 20.202));
+        assertFalse(fadaf1.update("STR", 0.2));
+    }
+
+    @Test
+    public void testOrderedQueries() {
+        assertEquals("SS", fadaf1.getMinKey());
+        assertEquals("String", fadaf1.getMaxKey());
+        assertEquals(Arrays.asList("SS", "SS", "ST", "ST", "ST", "ST", "ST", "STRING", "STRING", "Str", "String"),
+                fadaf1.getAllKeys(true));
+        assertEquals(Arrays.asList("STRING", "Str", "String"), fadaf1.getUniqueKeysInRange("ST", "string"));
+
+        assertTrue(fadaf1.remove("ST", 4));
+        assertEquals(1, fadaf1.lookup("ST"));
+        assertTrue(fadaf1.removeAll("SS"));
+        assertFalse(fadaf1.removeAll("SS"));
+        assertFalse(fadaf1.remove("SS", 1));
+        assertEquals(Arrays.asList("ST", "STRING", "Str", "String"), fadaf1.getAllKeys(false));
+        assertEquals(5, fadaf1.size());
+    }
+
+    @Test
+    public void testMergeMatchesSingleFADAF() {
+        ShardedFADAF<Integer, Integer> sharded = new ShardedFADAF<>(7, 1000);
+        FADAF<Integer, Integer> single = new FADAF<>(1000);
+        Random random = new Random(21);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000) - 2500;
+            if (random.nextInt(4) > 0) { assertEquals(single.insert(key, i, 2), sharded.insert(key, i, 2)); }
+            else { assertEquals(single.remove(key, 1), sharded.remove(key, 1)); }
+        }
+
+        assertEquals(single.size(), sharded.size());
+        assertEquals(single.getAllKeys(false), sharded.getAllKeys(false));
+        assertEquals(Arrays.asList(single.getAllKeys(true).toArray()), sharded.getAllKeys(true));
+        assertEquals(single.getUniqueKeysInRange(-100, 100), sharded.getUniqueKeysInRange(-100, 100));
+        assertEquals(single.getMinKey(), sharded.getMinKey());
+        assertEquals(single.getMaxKey(), sharded.getMaxKey());
+
+        // the merge is lazy, so reading a few keys past an open lower bound matches the start of the order
+        Iterator<Integer> iter = sharded.uniqueKeysInRange(null, null);
+        for (Integer key : single.getAllKeys(false).subList(0, 10)) { assertEquals(key, iter.next()); }
+    }
+
+    @Test
+    public void testConcurrentWritersOnDisjointKeys() throws InterruptedException {
+        ShardedFADAF<Integer, Integer> fadaf = new ShardedFADAF<>(4, 1024);
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int first = w * 10000;
+            writers[w] = new Thread(() -> {
+                for (int key = first; key < first + 10000; key++) { fadaf.insert(key, key, 1 + key % 3); }
+            });
+        }
+        for (Thread writer : writers) { writer.start(); }
+        for (Thread writer : writers) { writer.join(); }
+
+        assertEquals(40000, fadaf.nUniqueKeys());
+        int total = 0;
+        for (int key = 0; key < 40000; key++) { total += 1 + key % 3; }
+        assertEquals(total, fadaf.size());
+        assertEquals(Integer.valueOf(0), fadaf.getMinKey());
+        assertEquals(Integer.valueOf(39999), fadaf.getMaxKey());
+        int expected = 0;
+        for (int key : fadaf.getAllKeys(false)) { assertEquals(expected++, key); }
+    }
+
+    @Test
+    public void testEmpty() {
+        ShardedFADAF<String, Double> empty = new ShardedFADAF<>(3, 10);
+        assertNull(empty.getMinKey());
+        assertNull(empty.getMaxKey());
+        assertTrue(empty.getAllKeys(true).isEmpty());
+        assertFalse(empty.uniqueKeysInRange(null, null).hasNext());
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new ShardedFADAF<String, Double>(0, 10); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testCapacityThrowsIAE() { new ShardedFADAF<String, Double>(4, 9); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { fadaf1.insert(null, 2.0, 2); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert("Str", 2.0, 0); }
+
+    @Test (expected = NullPointerException.class)
+    public void testLookupThrowsNPE() { fadaf1.lookup(null); }
+
+    @Test (expected = NullPointerException.class)
+    public void testRangeThrowsNPE() { fadaf1.getUniqueKeysInRange(null, "Str"); }
+
+}
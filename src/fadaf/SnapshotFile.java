@@ -0,0 +1,208 @@
+package fadaf;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+/*
+ * Binary snapshot of a FADAF. Layout, all big-endian:
+ *
+ *   header  magic int, version int, nUnique int, nElems long, crc32 of the body long
+ *   body    nUnique records in ascending key order: keyLen int, key, count int, dataLen int, data
+ *
+ * The file is written next to its target and moved into place, so a crash never leaves a torn snapshot.
+ */
+class SnapshotFile {
+
+    static final int MAGIC = 0x46444146; // "FDAF"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 28;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+    private static final long WINDOW_BYTES = 1 << 30; // bytes mapped at a time while reading
+    // the largest record read accepts: its three ints and a key and data of a quarter window each
+    private static final int MAX_BUFFER_BYTES = (int) (WINDOW_BYTES / 2) + 3 * Integer.BYTES;
+
+    // arrays parsed from a snapshot, ready for a bulk build
+    static class Contents<K, D> {
+        K[] keys;
+        D[] data;
+        int[] counts;
+        int nUnique;
+    }
+
+    static <K extends Comparable<? super K>, D> void write(Path path, DAFTree<K, D> tree, Codec<K> keyCodec,
+                                                          Codec<D> dataCodec) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(HEADER_BYTES);
+
+                DAFTree<K, D>.DAFTreeUniqueIterator iter = tree.new DAFTreeUniqueIterator();
+                while (iter.hasNext()) {
+                    DAFTree<K, D>.DAFNode<K, D> node = iter.nextNode();
+                    // a record that does not fit is retried after a flush, or in a bigger buffer if it was empty
+                    while (!put(buffer, node, keyCodec, dataCodec)) {
+                        if (buffer.position() > 0) { flush(channel, buffer, crc); }
+                        else if (buffer.capacity() < MAX_BUFFER_BYTES) {
+                            buffer = ByteBuffer.allocateDirect(Math.min(MAX_BUFFER_BYTES, buffer.capacity() * 2));
+                        }
+                        else { throw new IOException("record too large to snapshot"); }
+                    }
+                }
+                flush(channel, buffer, crc);
+
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(tree.nUniqueKeys()).putLong(tree.size())
+                        .putLong(crc.getValue()).flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) { Files.deleteIfExists(temp); }
+        }
+    }
+
+    // writes the node's record after those already buffered, backfilling the lengths so each key and data is
+    // encoded once. returns false, with the buffer unchanged, if the record does not fit. codec errors propagate
+    private static <K extends Comparable<? super K>, D> boolean put(ByteBuffer buffer,
+            DAFTree<K, D>.DAFNode<K, D> node, Codec<K> keyCodec, Codec<D> dataCodec) {
+        int start = buffer.position();
+        if (buffer.remaining() < 3 * Integer.BYTES) { return false; }
+        try {
+            buffer.position(start + Integer.BYTES);
+            keyCodec.write(node.key, buffer);
+            buffer.putInt(start, buffer.position() - start - Integer.BYTES);
+            buffer.putInt(node.count);
+            int dataAt = buffer.position();
+            buffer.position(dataAt + Integer.BYTES);
+            dataCodec.write(node.data, buffer);
+            buffer.putInt(dataAt, buffer.position() - dataAt - Integer.BYTES);
+            return true;
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+        buffer.clear();
+    }
+
+    static <K extends Comparable<? super K>, D> Contents<K, D> read(Path path, Codec<K> keyCodec,
+                                                                   Codec<D> dataCodec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES) { throw new IOException("not a FADAF snapshot: " + path); }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) { throw new IOException("not a FADAF snapshot: " + path); }
+            int version = header.getInt();
+            if (version != VERSION) { throw new IOException("unsupported snapshot version " + version); }
+            int nUnique = header.getInt();
+            long nElems = header.getLong();
+            long expectedCrc = header.getLong();
+            // every record takes at least its three ints, so a count the body cannot hold is rejected unallocated
+            if (nUnique < 0 || nElems < nUnique || (long) nUnique * 3 * Integer.BYTES > fileSize - HEADER_BYTES) {
+                throw new IOException("corrupt FADAF snapshot: " + path);
+            }
+
+            Contents<K, D> contents = newContents(nUnique);
+
+            // one sequential pass over the body, remapping a window at a time
+            CRC32 crc = new CRC32();
+            long windowStart = HEADER_BYTES;
+            MappedByteBuffer window = map(channel, windowStart, fileSize);
+            long copies = 0;
+            try {
+                for (int i = 0; i < nUnique; i++) {
+                    if (window.remaining() < Integer.BYTES) {
+                        windowStart = remap(window, windowStart, crc);
+                        window = map(channel, windowStart, fileSize);
+                    }
+                    int keyLen = checkLength(window.getInt(window.position()), windowStart + window.position(),
+                            fileSize);
+                    if (window.remaining() < Integer.BYTES + keyLen + 2 * Integer.BYTES) {
+                        windowStart = remap(window, windowStart, crc);
+                        window = map(channel, windowStart, fileSize);
+                    }
+                    int dataAt = window.position() + Integer.BYTES + keyLen + Integer.BYTES;
+                    int dataLen = checkLength(window.getInt(dataAt), windowStart + dataAt, fileSize);
+                    if (window.remaining() < 3 * Integer.BYTES + keyLen + dataLen) {
+                        windowStart = remap(window, windowStart, crc);
+                        window = map(channel, windowStart, fileSize);
+                    }
+
+                    window.getInt();
+                    contents.keys[i] = readExactly(window, keyLen, keyCodec);
+                    contents.counts[i] = window.getInt();
+                    window.getInt();
+                    contents.data[i] = readExactly(window, dataLen, dataCodec);
+                    copies += contents.counts[i];
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("corrupt FADAF snapshot: " + path, e);
+            }
+            window.flip();
+            crc.update(window);
+
+            if (crc.getValue() != expectedCrc || copies != nElems || windowStart + window.limit() != fileSize) {
+                throw new IOException("corrupt FADAF snapshot: " + path);
+            }
+            return contents;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<? super K>, D> Contents<K, D> newContents(int nUnique) {
+        Contents<K, D> contents = new Contents<>();
+        contents.keys = (K[]) new Comparable<?>[nUnique];
+        contents.data = (D[]) new Object[nUnique];
+        contents.counts = new int[nUnique];
+        contents.nUnique = nUnique;
+        return contents;
+    }
+
+    // a length read at the given file offset must be non-negative and fit in the rest of the file. a whole
+    // record must also fit in one window, so each value is capped at a quarter of it
+    private static int checkLength(int length, long at, long fileSize) {
+        if (length < 0 || length > fileSize - at - Integer.BYTES || length > WINDOW_BYTES / 4) {
+            throw new IllegalStateException("bad length " + length + " at offset " + at);
+        }
+        return length;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long start, long fileSize) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_BYTES, fileSize - start));
+    }
+
+    // checksums the consumed part of the window, returning where the next window starts
+    private static long remap(MappedByteBuffer window, long windowStart, CRC32 crc) {
+        int consumed = window.position();
+        window.flip();
+        crc.update(window);
+        return windowStart + consumed;
+    }
+
+    private static <T> T readExactly(ByteBuffer in, int length, Codec<T> codec) {
+        int end = in.position() + length;
+        T value = codec.read(in, length);
+        if (in.position() != end) { throw new IllegalStateException("codec read the wrong number of bytes"); }
+        return value;
+    }
+
+}
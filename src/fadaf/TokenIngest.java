@@ -0,0 +1,206 @@
+package fadaf;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/*
+ * Counts the whitespace-separated tokens of a text file into a FADAF. The file is cut into chunks that end
+ * just after a newline, so no token spans two chunks, and each chunk is memory-mapped and tokenized by its own
+ * thread into a local table keyed on the raw bytes: a String is only built for the first copy of each token in
+ * a chunk. The partial counts are then merged into a new FADAF by one bulkLoad, which sorts them, sums the
+ * counts of equal tokens and builds the tree balanced in a single pass.
+ *
+ * Tokens are split on ASCII whitespace. Those bytes never occur inside a multi-byte UTF-8 sequence, so the
+ * bytes can be split before they are decoded. Counts are ints, like every count in FADAF.
+ */
+public final class TokenIngest {
+
+    private static final int CHUNK_BYTES = 1 << 26;
+    private static final int CHUNKS_PER_THREAD = 4; // spare chunks keep every thread busy until the end
+
+    private TokenIngest() { }
+
+    /* counts with one thread per available processor, storing each token as its own data */
+    public static FADAF<String, String> countTokens(Path path) throws IOException {
+        return countTokens(path, Function.identity(), Runtime.getRuntime().availableProcessors());
+    }
+
+    /* counts with the given number of threads, storing dataForToken of each new token as its data */
+    public static <D> FADAF<String, D> countTokens(Path path, Function<String, D> dataForToken, int nThreads)
+            throws IOException {
+        return countTokens(path, dataForToken, nThreads, CHUNK_BYTES);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <D> FADAF<String, D> countTokens(Path path, Function<String, D> dataForToken, int nThreads,
+                                            int maxChunkBytes) throws IOException {
+        if (path == null || dataForToken == null) { throw new NullPointerException(); }
+        if (nThreads < 1 || maxChunkBytes < 1) { throw new IllegalArgumentException(); }
+
+        List<ChunkCounter> partials = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkBytes = Math.max(1, Math.min(maxChunkBytes, size / ((long) nThreads * CHUNKS_PER_THREAD)));
+            List<long[]> chunks = split(channel, size, chunkBytes);
+
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(nThreads, Math.max(1, chunks.size())));
+            try {
+                List<Future<ChunkCounter>> futures = new ArrayList<>(chunks.size());
+                for (long[] chunk : chunks) {
+                    futures.add(pool.submit(() -> {
+                        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, chunk[0], chunk[1] - chunk[0]);
+                        return ChunkCounter.count(bytes);
+                    }));
+                }
+                for (Future<ChunkCounter> future : futures) { partials.add(future.get()); }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) { throw (IOException) e.getCause(); }
+                if (e.getCause() instanceof RuntimeException) { throw (RuntimeException) e.getCause(); }
+                throw new IllegalStateException(e.getCause());
+            } finally { pool.shutdownNow(); }
+        }
+
+        int total = 0;
+        for (ChunkCounter partial : partials) { total += partial.size; }
+        String[] keys = new String[total];
+        D[] data = (D[]) new Object[total];
+        int[] counts = new int[total];
+        int n = 0;
+        for (ChunkCounter partial : partials) {
+            for (int slot = 0; slot < partial.tokens.length; slot++) {
+                if (partial.tokens[slot] == null) { continue; }
+                keys[n] = partial.tokens[slot];
+                data[n] = dataForToken.apply(partial.tokens[slot]);
+                counts[n++] = partial.counts[slot];
+            }
+        }
+        return FADAF.bulkLoad(keys, data, counts);
+    }
+
+    // [start, end) offsets of chunks of about chunkBytes, each but the last ending just after a newline
+    private static List<long[]> split(FileChannel channel, long size, long chunkBytes) throws IOException {
+        List<long[]> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(1 << 12);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            // moves the end forward to just past the next newline
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                if (read <= 0) {
+                    end = size;
+                    break;
+                }
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (probe.get(i) == '\n') { newline = i; }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            if (end - start > Integer.MAX_VALUE) { throw new IOException("line too long to map at offset " + start); }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    // counts the tokens of one chunk in an open-addressing table keyed on their bytes
+    private static final class ChunkCounter {
+        private int[] hashes = new int[1 << 10];
+        private byte[][] bytes = new byte[1 << 10][];
+        private String[] tokens = new String[1 << 10];
+        private int[] counts = new int[1 << 10];
+        private int size;
+
+        static ChunkCounter count(ByteBuffer chunk) {
+            ChunkCounter counter = new ChunkCounter();
+            int limit = chunk.limit(), tokenStart = -1, h = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = chunk.get(i);
+                if (b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B) {
+                    if (tokenStart >= 0) {
+                        counter.add(chunk, tokenStart, i, h);
+                        tokenStart = -1;
+                    }
+                } else {
+                    if (tokenStart < 0) {
+                        tokenStart = i;
+                        h = 0;
+                    }
+                    h = 31 * h + b;
+                }
+            }
+            if (tokenStart >= 0) { counter.add(chunk, tokenStart, limit, h); }
+            return counter;
+        }
+
+        private void add(ByteBuffer chunk, int start, int end, int h) {
+            int mask = this.tokens.length - 1;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (this.tokens[slot] != null) {
+                if (this.hashes[slot] == h && this.matches(this.bytes[slot], chunk, start, end)) {
+                    this.counts[slot]++;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            byte[] token = new byte[end - start];
+            chunk.get(start, token);
+            this.hashes[slot] = h;
+            this.bytes[slot] = token;
+            this.tokens[slot] = new String(token, StandardCharsets.UTF_8);
+            this.counts[slot] = 1;
+            // keeps the load factor at or under 1/2, so probe runs stay short
+            if (++this.size > this.tokens.length / 2) { this.grow(); }
+        }
+
+        private boolean matches(byte[] token, ByteBuffer chunk, int start, int end) {
+            if (token.length != end - start) { return false; }
+            for (int i = 0; i < token.length; i++) {
+                if (token[i] != chunk.get(start + i)) { return false; }
+            }
+            return true;
+        }
+
+        private void grow() {
+            int[] oldHashes = this.hashes, oldCounts = this.counts;
+            byte[][] oldBytes = this.bytes;
+            String[] oldTokens = this.tokens;
+            int length = oldTokens.length * 2, mask = length - 1;
+            this.hashes = new int[length];
+            this.bytes = new byte[length][];
+            this.tokens = new String[length];
+            this.counts = new int[length];
+
+            for (int i = 0; i < oldTokens.length; i++) {
+                if (oldTokens[i] == null) { continue; }
+                int slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & mask;
+                while (this.tokens[slot] != null) { slot = (slot + 1) & mask; }
+                this.hashes[slot] = oldHashes[i];
+                this.bytes[slot] = oldBytes[i];
+                this.tokens[slot] = oldTokens[i];
+                this.counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package fadaf;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class TokenIngestTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String text) throws IOException {
+        Path path = folder.newFile().toPath();
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void testCountsTokens() throws IOException {
+        Path path = write("the quick brown fox\njumps over\tthe lazy dog\r\n\nthe end");
+        FADAF<String, String> fadaf = TokenIngest.countTokens(path);
+        assertEquals(11, fadaf.size());
+        assertEquals(9, fadaf.nUniqueKeys());
+        assertEquals(3, fadaf.lookup("the"));
+        assertEquals(1, fadaf.lookup("end"));
+        assertEquals(0, fadaf.lookup("dog\r"));
+        assertEquals(Arrays.asList("brown", "dog", "end", "fox", "jumps", "lazy", "over", "quick", "the"),
+                fadaf.getAllKeys(false));
+        assertEquals(Arrays.asList("the"), fadaf.topK(1));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        FADAF<String, String> fadaf = TokenIngest.countTokens(write(""));
+        assertEquals(0, fadaf.size());
+        assertEquals(0, TokenIngest.countTokens(write(" \n\n \t")).size());
+    }
+
+    @Test
+    public void testSmallChunksMatchSequentialCount() throws IOException {
+        // multi-byte tokens, long lines and many chunk boundaries
+        String[] words = {"alpha", "beta", "gamma", "δέλτα", "ε", "日本語", "x", "longer-token-here"};
+        Random random = new Random(25);
+        StringBuilder text = new StringBuilder();
+        TreeMap<String, Integer> expected = new TreeMap<>();
+        for (int line = 0; line < 2000; line++) {
+            int nWords = random.nextInt(line % 100 == 0 ? 500 : 12);
+            for (int w = 0; w < nWords; w++) {
+                String word = words[random.nextInt(words.length)] + random.nextInt(40);
+                text.append(word).append(random.nextInt(5) == 0 ? "  " : " ");
+                expected.merge(word, 1, Integer::sum);
+            }
+            text.append('\n');
+        }
+        Path path = write(text.toString());
+
+        for (int chunkBytes : new int[]{1, 64, 1000, 1 << 20}) {
+            FADAF<String, Integer> fadaf = TokenIngest.countTokens(path, String::length, 3, chunkBytes);
+            assertEquals(new ArrayList<>(expected.keySet()), fadaf.getAllKeys(false));
+            for (String word : expected.keySet()) { assertEquals((int) expected.get(word), fadaf.lookup(word)); }
+        }
+    }
+
+    @Test
+    public void testDataForToken() throws IOException {
+        FADAF<String, Integer> fadaf = TokenIngest.countTokens(write("aa b aa"), String::length, 2);
+        assertEquals(Arrays.asList(2, 1), fadaf.entryStream().map(FADAF.Entry::getData)
+                                               .collect(java.util.stream.Collectors.toList()));
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testThreadsThrowsIAE() throws IOException {
+        TokenIngest.countTokens(write("a"), Function.identity(), 0);
+    }
+
+    @Test (expected = NullPointerException.class)
+    public void testPathThrowsNPE() throws IOException { TokenIngest.countTokens(null); }
+
+}
@@ -0,0 +1,129 @@
+package fadaf;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/*
+ * FADAF whose counts cover a sliding time window. The window is cut into nSlices slices of equal length; each
+ * slice records how many copies of each key were inserted during it, and a FADAF holds the sum over the live
+ * slices, so every query runs against it at its usual cost. When the clock enters a new slice, the oldest one
+ * is expired by subtracting only its own keys from the FADAF. Each insert is therefore undone exactly once, at
+ * O(log n), and no expiry ever sweeps the whole tree.
+ *
+ * Counts cover the current slice and the nSlices - 1 before it, so the span counted is between
+ * windowMillis - windowMillis / nSlices and windowMillis. More slices make the edge finer, at one small map each.
+ */
+public class WindowedFADAF<K extends Comparable<? super K>, D> {
+
+    private final FADAF<K, D> window;
+    private final HashMap<K, Integer>[] slices; // copies inserted per key, slice i at i % nSlices
+    private final long sliceMillis;
+    private final LongSupplier clock;
+    private long currentSlice; // number of the slice the clock was last in
+
+    public WindowedFADAF(long windowMillis, int nSlices, int capacity) {
+        this(windowMillis, nSlices, capacity, System::currentTimeMillis);
+    }
+
+    /* reads the time from the given clock in milliseconds, for event time or tests */
+    public WindowedFADAF(long windowMillis, int nSlices, int capacity, LongSupplier clock) {
+        if (clock == null) { throw new NullPointerException(); }
+        if (nSlices < 1 || windowMillis < nSlices) { throw new IllegalArgumentException(); }
+
+        this.window = new FADAF<>(capacity);
+        this.slices = newSlices(nSlices);
+        for (int i = 0; i < nSlices; i++) { this.slices[i] = new HashMap<>(); }
+        this.sliceMillis = windowMillis / nSlices;
+        this.clock = clock;
+        this.currentSlice = Math.floorDiv(clock.getAsLong(), this.sliceMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> HashMap<K, Integer>[] newSlices(int nSlices) {
+        return (HashMap<K, Integer>[]) new HashMap<?, ?>[nSlices];
+    }
+
+    public long windowMillis() { return this.sliceMillis * this.slices.length; }
+
+    /* counts nCopy copies of the key in the current slice, returning whether the key was new to the window */
+    public boolean insert(K key, D data, int nCopy) {
+        this.advance();
+        boolean inserted = this.window.insert(key, data, nCopy);
+        this.slices[this.slot(this.currentSlice)].merge(key, nCopy, Integer::sum);
+        return inserted;
+    }
+
+    public boolean update(K key, D newData) {
+        this.advance();
+        return this.window.update(key, newData);
+    }
+
+    /* copies of the key inserted within the window */
+    public int lookup(K key) {
+        this.advance();
+        return this.window.lookup(key);
+    }
+
+    public int size() {
+        this.advance();
+        return this.window.size();
+    }
+
+    public int nUniqueKeys() {
+        this.advance();
+        return this.window.nUniqueKeys();
+    }
+
+    /* the k keys most frequent within the window. see FADAF.topK */
+    public List<K> topK(int k) {
+        this.advance();
+        return this.window.topK(k);
+    }
+
+    /* see FADAF.getAllKeys. a view with duplicates is not updated as slices expire */
+    public List<K> getAllKeys(boolean allowDuplicate) {
+        this.advance();
+        return this.window.getAllKeys(allowDuplicate);
+    }
+
+    public List<K> getUniqueKeysInRange(K lower, K upper) {
+        this.advance();
+        return this.window.getUniqueKeysInRange(lower, upper);
+    }
+
+    /* copies of keys strictly between lower and upper within the window */
+    public int countInRange(K lower, K upper) {
+        this.advance();
+        return this.window.countInRange(lower, upper);
+    }
+
+    public K getMinKey() {
+        this.advance();
+        return this.window.getMinKey();
+    }
+
+    public K getMaxKey() {
+        this.advance();
+        return this.window.getMaxKey();
+    }
+
+    private int slot(long slice) { return (int) Math.floorMod(slice, (long) this.slices.length); }
+
+    // expires every slice the clock has moved past the window since the last call
+    private void advance() {
+        long now = Math.floorDiv(this.clock.getAsLong(), this.sliceMillis);
+        if (now <= this.currentSlice) { return; }
+
+        // a jump past the whole window expires each slice once, however long the jump
+        long first = Math.max(this.currentSlice + 1, now - this.slices.length + 1);
+        for (long slice = first; slice <= now; slice++) {
+            HashMap<K, Integer> expired = this.slices[this.slot(slice)];
+            for (Map.Entry<K, Integer> entry : expired.entrySet()) {
+                this.window.remove(entry.getKey(), entry.getValue());
+            }
+            expired.clear();
+        }
+        this.currentSlice = now;
+    }
+
+}
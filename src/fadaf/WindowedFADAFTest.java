@@ -0,0 +1,106 @@
+package fadaf;
+
+import org.junit.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WindowedFADAFTest {
+
+    long now;
+    WindowedFADAF<String, Double> fadaf1;
+
+    @Before
+    public void setUp() {
+        now = 1_000_000;
+        // a 60 second window in 6 slices of 10 seconds
+        fadaf1 = new WindowedFADAF<>(60_000, 6, 10, () -> now);
+
+        assertTrue(fadaf1.insert("ST", -20.202, 4));
+        assertTrue(fadaf1.insert("Str", -4.8, 1));
+        now += 25_000;
+        assertFalse(fadaf1.insert("ST", 22.0, 1));
+        assertTrue(fadaf1.insert("SS", 2.0, 2));
+        assertEquals(8, fadaf1.size());
+        assertEquals(3, fadaf1.nUniqueKeys());
+    }
+
+    @Test
+    public void testSlicesExpire() {
+        assertEquals(5, fadaf1.lookup("ST"));
+        assertEquals(Arrays.asList("ST", "SS", "Str"), fadaf1.topK(3));
+
+        // the first slice leaves the window once the clock is 60 seconds past its start
+        now += 34_999;
+        assertEquals(5, fadaf1.lookup("ST"));
+        now += 1;
+        assertEquals(1, fadaf1.lookup("ST"));
+        assertEquals(0, fadaf1.lookup("Str"));
+        assertEquals(Arrays.asList("SS", "ST"), fadaf1.topK(3));
+        assertEquals(Arrays.asList("SS", "ST"), fadaf1.getAllKeys(false));
+        assertEquals(3, fadaf1.size());
+
+        now += 60_000;
+        assertEquals(0, fadaf1.size());
+        assertNull(fadaf1.getMinKey());
+        assertEquals(Collections.emptyList(), fadaf1.topK(1));
+    }
+
+    @Test
+    public void testReinsertAfterExpiry() {
+        now += 200_000;
+        assertTrue(fadaf1.insert("ST", 1.0, 2));
+        assertEquals(2, fadaf1.lookup("ST"));
+        assertTrue(fadaf1.update("ST", 3.0));
+        assertFalse(fadaf1.update("Str", 3.0));
+        assertEquals("ST", fadaf1.getMaxKey());
+    }
+
+    @Test
+    public void testRangeQueries() {
+        assertEquals(Arrays.asList("ST", "Str"), fadaf1.getUniqueKeysInRange("SS", "String"));
+        assertEquals(6, fadaf1.countInRange("SS", "String"));
+        assertEquals(Arrays.asList("SS", "SS", "ST", "ST", "ST", "ST", "ST", "Str"), fadaf1.getAllKeys(true));
+    }
+
+    @Test
+    public void testMatchesRecount() {
+        WindowedFADAF<Integer, Integer> windowed = new WindowedFADAF<>(1000, 10, 10, () -> now);
+        long[] times = new long[20000];
+        int[] keys = new int[times.length];
+        Random random = new Random(23);
+        for (int i = 0; i < times.length; i++) {
+            now += random.nextInt(random.nextInt(100) == 0 ? 3000 : 5);
+            times[i] = now;
+            keys[i] = random.nextInt(50);
+            windowed.insert(keys[i], i, 1);
+
+            if (i % 500 == 0) {
+                // counted are the inserts from the start of the slice 900 to 1000 ms ago onwards
+                long windowStart = (Math.floorDiv(now, 100) - 9) * 100;
+                int[] expected = new int[50];
+                for (int j = 0; j <= i; j++) {
+                    if (times[j] >= windowStart) { expected[keys[j]]++; }
+                }
+                for (int key = 0; key < 50; key++) { assertEquals(expected[key], windowed.lookup(key)); }
+            }
+        }
+    }
+
+    // test exceptions
+    @Test (expected = IllegalArgumentException.class)
+    public void testConstructorThrowsIAE() { new WindowedFADAF<String, Double>(60_000, 0, 10); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testCapacityThrowsIAE() { new WindowedFADAF<String, Double>(60_000, 6, 9); }
+
+    @Test (expected = NullPointerException.class)
+    public void testInsertKeyThrowsNPE() { fadaf1.insert(null, 2.0, 2); }
+
+    @Test (expected = IllegalArgumentException.class)
+    public void testInsertThrowsIAE() { fadaf1.insert("Str", 2.0, 0); }
+
+}